@@ -0,0 +1,235 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Solve all test cases of a directory (input/<size>/<set>/<file>) with several worker JVMs on the same machine,
+ * then merge the results into output/<size>/summary.txt (same format as MTVRPTW.testILS).
+ *
+ * Work is distributed through a file-lease queue in output/<size>/queue:
+ *  - pending/<set>@<file>: test cases to solve, the content is the # previous attempts
+ *  - leased/<set>@<file>@<worker id>: test cases being solved. A worker takes a lease by atomically
+ *    renaming a pending file, so every test case is leased by exactly 1 worker.
+ *  - done/<set>@<file>: results ("# vehicles distance runtime"), written atomically by the worker
+ *  - failed/<set>@<file>: test cases that failed MAX_ATTEMPTS times
+ * When a worker exits abnormally (e.g. out of memory), its leases are put back to pending and a new worker is started.
+ *
+ * Usage: java BatchCoordinator [# customers] [# workers] [worker JVM options...]
+ * Workers are started with: java BatchCoordinator --worker <# customers> <worker id>
+ */
+public class BatchCoordinator {
+    static final int MAX_ATTEMPTS = 3;
+    static final String SEPARATOR = "@";
+    static final Logger logger = Logger.getLogger(BatchCoordinator.class.getName());
+
+    int numCustomers;
+    File inputDirectory, outputDirectory;
+    Path pendingDir, leasedDir, doneDir, failedDir;
+
+    BatchCoordinator(int numCustomers) throws IOException {
+        this.numCustomers = numCustomers;
+        String inputFolder = "/" + numCustomers + "/";
+        inputDirectory = new File(System.getProperty("user.dir") + "/input/" + inputFolder);
+        outputDirectory = new File(System.getProperty("user.dir") + "/output/" + inputFolder);
+        Path queueDir = outputDirectory.toPath().resolve("queue");
+        pendingDir = Files.createDirectories(queueDir.resolve("pending"));
+        leasedDir = Files.createDirectories(queueDir.resolve("leased"));
+        doneDir = Files.createDirectories(queueDir.resolve("done"));
+        failedDir = Files.createDirectories(queueDir.resolve("failed"));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--worker")) {
+            new BatchCoordinator(Integer.parseInt(args[1])).runWorker(args[2]);
+            return;
+        }
+        int numCustomers = args.length > 0 ? Integer.parseInt(args[0]) : MTVRPTW.numCustomers;
+        int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<String> jvmOptions = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : new ArrayList<>();
+        new BatchCoordinator(numCustomers).runCoordinator(numWorkers, jvmOptions);
+    }
+
+    /**
+     * Fill the queue, run the workers until the queue is empty, then write the summary file.
+     */
+    void runCoordinator(int numWorkers, List<String> jvmOptions) throws IOException, InterruptedException {
+        for (Path dir : Arrays.asList(pendingDir, leasedDir, doneDir, failedDir)) clearDirectory(dir);
+        for (String testSet : getTestSets()) {
+            for (String inputFile : getInputFiles(testSet)) {
+                Files.write(pendingDir.resolve(testSet + SEPARATOR + inputFile), "0".getBytes());
+            }
+        }
+
+        Map<String, Process> workers = new HashMap<>();
+        int nextWorkerId = 0, numStartupFailures = 0;
+        for (int i = 0; i < numWorkers; i++) {
+            String workerId = String.valueOf(nextWorkerId++);
+            workers.put(workerId, startWorker(workerId, jvmOptions));
+        }
+        while (!workers.isEmpty()) {
+            Thread.sleep(1000);
+            for (String workerId : new ArrayList<>(workers.keySet())) {
+                Process worker = workers.get(workerId);
+                if (worker.isAlive()) continue;
+                workers.remove(workerId);
+                if (worker.exitValue() != 0) {
+                    logger.warning("Worker " + workerId + " exited with code " + worker.exitValue());
+                    // A worker failing without any lease cannot start (e.g. wrong class path), do not retry forever
+                    if (releaseLeases(workerId) == 0) numStartupFailures++;
+                }
+                // Replace the worker if there are still test cases to solve
+                if (!isEmpty(pendingDir) && workers.size() < numWorkers && numStartupFailures < MAX_ATTEMPTS) {
+                    String newWorkerId = String.valueOf(nextWorkerId++);
+                    workers.put(newWorkerId, startWorker(newWorkerId, jvmOptions));
+                }
+            }
+        }
+        writeSummary();
+    }
+
+    Process startWorker(String workerId, List<String> jvmOptions) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), BatchCoordinator.class.getName(),
+                "--worker", String.valueOf(numCustomers), workerId));
+        File log = outputDirectory.toPath().resolve("queue").resolve("worker-" + workerId + ".log").toFile();
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    /**
+     * Put the test cases leased by a dead worker back to pending, or to failed after MAX_ATTEMPTS attempts.
+     * @return # released leases
+     */
+    int releaseLeases(String workerId) throws IOException {
+        int numLeases = 0;
+        try (DirectoryStream<Path> leases = Files.newDirectoryStream(leasedDir, "*" + SEPARATOR + workerId)) {
+            for (Path lease : leases) {
+                String name = lease.getFileName().toString();
+                String taskName = name.substring(0, name.lastIndexOf(SEPARATOR));
+                int numAttempts = Integer.parseInt(new String(Files.readAllBytes(lease)).trim()) + 1;
+                Files.write(lease, String.valueOf(numAttempts).getBytes());
+                Path target = (numAttempts >= MAX_ATTEMPTS ? failedDir : pendingDir).resolve(taskName);
+                Files.move(lease, target, StandardCopyOption.ATOMIC_MOVE);
+                logger.warning("Released " + taskName + " after " + numAttempts + " attempt(s)");
+                numLeases++;
+            }
+        }
+        return numLeases;
+    }
+
+    /**
+     * Lease and solve test cases until the queue is empty.
+     */
+    void runWorker(String workerId) throws IOException {
+        Path lease;
+        while ((lease = takeLease(workerId)) != null) {
+            String name = lease.getFileName().toString();
+            String taskName = name.substring(0, name.lastIndexOf(SEPARATOR));
+            String testSet = taskName.substring(0, taskName.indexOf(SEPARATOR));
+            String inputFile = taskName.substring(taskName.indexOf(SEPARATOR) + 1);
+
+            DataModel dataModel = new DataModel(inputDirectory + "/" + testSet + "/" + inputFile, numCustomers);
+            long start = System.nanoTime();
+            List<Route> solution = new SolutionAlgorithm().run(dataModel);
+            assert Utils.isValidSolution(dataModel, solution);
+            Utils.writeOutputToFile(solution, outputDirectory, testSet, inputFile);
+            double distance = ((int) (Utils.getTotalDistance(dataModel, solution) * 10)) / 10.0;
+            double runtime = ((int) ((System.nanoTime() - start) / 1e7)) / 100.0;
+
+            // Write the result atomically, then release the lease
+            Path tmp = doneDir.resolve(taskName + ".tmp");
+            Files.write(tmp, (solution.size() + " " + distance + " " + runtime).getBytes());
+            Files.move(tmp, doneDir.resolve(taskName), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(lease);
+            logger.info("Worker " + workerId + " solved " + taskName + ": " + solution.size() + " vehicles");
+        }
+    }
+
+    /**
+     * Take the lease of a pending test case.
+     * @return the lease, or null if there is no pending test case
+     */
+    Path takeLease(String workerId) throws IOException {
+        while (true) {
+            List<Path> pending = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(pendingDir)) {
+                stream.forEach(pending::add);
+            }
+            if (pending.isEmpty()) return null;
+            Collections.sort(pending);
+            for (Path task : pending) {
+                Path lease = leasedDir.resolve(task.getFileName() + SEPARATOR + workerId);
+                try {
+                    return Files.move(task, lease, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    // Leased by another worker
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge the results into the summary file, a test case that could not be solved has -1 vehicles.
+     */
+    void writeSummary() throws IOException {
+        StringBuilder logMsg = new StringBuilder();
+        int cumulativeLength = 0;
+        FileWriter fileWriter = new FileWriter(new File(outputDirectory + "/" + "summary.txt"));
+        fileWriter.write(MTVRPTW.SUMMARY_HEADER);
+        for (String testSet : getTestSets()) {
+            String[] inputFiles = getInputFiles(testSet);
+            int[] solutionSizes = new int[inputFiles.length];
+            double[] distanceTraveled = new double[inputFiles.length];
+            double[] runtimes = new double[inputFiles.length];
+            for (int i = 0; i < inputFiles.length; i++) {
+                Path result = doneDir.resolve(testSet + SEPARATOR + inputFiles[i]);
+                if (!Files.exists(result)) {
+                    logger.severe("No result for " + testSet + "/" + inputFiles[i]);
+                    solutionSizes[i] = -1;
+                    continue;
+                }
+                String[] values = new String(Files.readAllBytes(result)).trim().split(" ");
+                solutionSizes[i] = Integer.parseInt(values[0]);
+                distanceTraveled[i] = Double.parseDouble(values[1]);
+                runtimes[i] = Double.parseDouble(values[2]);
+            }
+            logMsg.append(MTVRPTW.getTestSetSummary(testSet, inputFiles, solutionSizes, distanceTraveled, runtimes));
+            cumulativeLength += MTVRPTW.getNumVehicles(solutionSizes);
+            fileWriter.write(logMsg.toString());
+            logMsg = new StringBuilder();
+        }
+        logMsg.append(MTVRPTW.getTotalSummary(cumulativeLength));
+        logger.info(logMsg.toString());
+        fileWriter.write(logMsg.toString());
+        fileWriter.close();
+    }
+
+    String[] getTestSets() {
+        String[] testSets = inputDirectory.list((dir, name) -> new File(dir, name).isDirectory());
+        Arrays.sort(testSets);
+        return testSets;
+    }
+
+    String[] getInputFiles(String testSet) {
+        String testDirectory = inputDirectory + "/" + testSet;
+        String[] inputFiles = Objects.requireNonNull(new File(testDirectory).list((dir, name) -> new File(dir, name).isFile()));
+        Arrays.sort(inputFiles);
+        return inputFiles;
+    }
+
+    static boolean isEmpty(Path dir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            return !stream.iterator().hasNext();
+        }
+    }
+
+    static void clearDirectory(Path dir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) Files.delete(file);
+        }
+    }
+}
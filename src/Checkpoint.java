@@ -0,0 +1,297 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * State of a SolutionAlgorithm run between 2 rounds of the ILS (after a strong-perturbation),
+ * enough to resume the run with the same continuation as without interruption:
+ * the runs (# exchanges) already done and their local optima, the current solution, iteration counters and
+ * archive (local optima, seen local optima in LRU order) of the run in progress, the incumbent and the state of
+ * the IterationControl. The random exchanges are seeded with the same seed at each weak-perturbation,
+ * so the seed is the whole RNG state. The caches (Or-opt, 2-opt*) are not saved: they only save time.
+ * The arrival times are saved with the paths, recomputing them could round differently than the incremental updates.
+ *
+ * Binary format (DataOutputStream, big-endian): MAGIC, VERSION, fingerprints of the test case and of the
+ * configuration, seed, then the fields in the order of toBytes(), a route is its length followed by the node ids
+ * and the arrival times. A checkpoint is only resumed by a run of the same test case, with the same parameters
+ * (SolutionAlgorithm constants) and the same seed: any other run would not continue identically.
+ * Identical continuation holds for the fixed IterationControl (the adaptive one also depends on wall time).
+ */
+public class Checkpoint {
+    static final int MAGIC = 0x4d54434b;  // "MTCK"
+    static final int VERSION = 2;
+    static final Logger logger = Logger.getLogger(Checkpoint.class.getName());
+
+    long seed;
+    int runIdx;  // index in SolutionAlgorithm.numExchanges of the run in progress
+    long elapsedTime, timeToBestNumVehicles;  // ns
+    int bestNumVehicles, numRevisitedLocalOptima;
+    List<Route> initialSolution, bestSolution;  // best solution of the incumbent, null if none
+    List<List<Route>> previousLocalOptima;  // local optima of the runs already done
+    // Run in progress
+    List<Route> solution;
+    int numIteration, iterationLimit;
+    List<List<Route>> localOptima;
+    long[] seenLocalOptima;
+    // IterationControl
+    double numExchanges, bestDistance;
+    int controlNumVehicles, numIterationsWithoutImprovement, numSamples, numSuccesses;
+
+    void saveControl(IterationControl control) {
+        numExchanges = control.numExchanges;
+        bestDistance = control.bestDistance;
+        controlNumVehicles = control.numVehicles;
+        numIterationsWithoutImprovement = control.numIterationsWithoutImprovement;
+        numSamples = control.numSamples;
+        numSuccesses = control.numSuccesses;
+    }
+
+    void restoreControl(IterationControl control) {
+        control.numExchanges = numExchanges;
+        control.bestDistance = bestDistance;
+        control.numVehicles = controlNumVehicles;
+        control.numIterationsWithoutImprovement = numIterationsWithoutImprovement;
+        control.numSamples = numSamples;
+        control.numSuccesses = numSuccesses;
+    }
+
+    byte[] toBytes(DataModel dataModel) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(getInstanceFingerprint(dataModel));
+            out.writeLong(getConfigurationFingerprint());
+            out.writeLong(seed);
+            out.writeInt(runIdx);
+            out.writeLong(elapsedTime);
+            out.writeLong(timeToBestNumVehicles);
+            out.writeInt(bestNumVehicles);
+            out.writeInt(numRevisitedLocalOptima);
+            writeSolution(out, initialSolution);
+            out.writeBoolean(bestSolution != null);
+            if (bestSolution != null) writeSolution(out, bestSolution);
+            writeSolutions(out, previousLocalOptima);
+            writeSolution(out, solution);
+            out.writeInt(numIteration);
+            out.writeInt(iterationLimit);
+            writeSolutions(out, localOptima);
+            out.writeInt(seenLocalOptima.length);
+            for (long hash : seenLocalOptima) out.writeLong(hash);
+            out.writeDouble(numExchanges);
+            out.writeDouble(bestDistance);
+            out.writeInt(controlNumVehicles);
+            out.writeInt(numIterationsWithoutImprovement);
+            out.writeInt(numSamples);
+            out.writeInt(numSuccesses);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // in memory, does not happen
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param seed seed of the run to resume
+     * @throws IOException if the file is not a checkpoint of a run of this test case, configuration and seed
+     */
+    static Checkpoint read(Path file, DataModel dataModel, long seed) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a checkpoint: " + file);
+            if (in.readLong() != getInstanceFingerprint(dataModel)) throw new IOException("Checkpoint of another test case: " + file);
+            if (in.readLong() != getConfigurationFingerprint()) throw new IOException("Checkpoint of another configuration: " + file);
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.seed = in.readLong();
+            if (checkpoint.seed != seed) throw new IOException("Checkpoint of a run with seed " + checkpoint.seed + ": " + file);
+            checkpoint.runIdx = in.readInt();
+            checkpoint.elapsedTime = in.readLong();
+            checkpoint.timeToBestNumVehicles = in.readLong();
+            checkpoint.bestNumVehicles = in.readInt();
+            checkpoint.numRevisitedLocalOptima = in.readInt();
+            checkpoint.initialSolution = readSolution(in, dataModel);
+            if (in.readBoolean()) checkpoint.bestSolution = readSolution(in, dataModel);
+            checkpoint.previousLocalOptima = readSolutions(in, dataModel);
+            checkpoint.solution = readSolution(in, dataModel);
+            checkpoint.numIteration = in.readInt();
+            checkpoint.iterationLimit = in.readInt();
+            checkpoint.localOptima = readSolutions(in, dataModel);
+            checkpoint.seenLocalOptima = new long[in.readInt()];
+            for (int i = 0; i < checkpoint.seenLocalOptima.length; i++) checkpoint.seenLocalOptima[i] = in.readLong();
+            checkpoint.numExchanges = in.readDouble();
+            checkpoint.bestDistance = in.readDouble();
+            checkpoint.controlNumVehicles = in.readInt();
+            checkpoint.numIterationsWithoutImprovement = in.readInt();
+            checkpoint.numSamples = in.readInt();
+            checkpoint.numSuccesses = in.readInt();
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Fingerprint of the test case: the vehicle capacity and all attributes of all nodes.
+     */
+    static long getInstanceFingerprint(DataModel dataModel) {
+        long hash = fingerprint(dataModel.getNumNodes(), dataModel.getVehicleCapacity());
+        for (int i = 0; i < dataModel.getNumNodes(); i++) {
+            Node u = dataModel.getNode(i);
+            hash = fingerprint(hash, u.id, Double.doubleToLongBits(u.xCoord), Double.doubleToLongBits(u.yCoord),
+                    u.demand, u.readyTime, u.dueTime, u.serviceTime);
+        }
+        return hash;
+    }
+
+    /**
+     * Fingerprint of the parameters of SolutionAlgorithm that change the course of a run.
+     */
+    static long getConfigurationFingerprint() {
+        long hash = fingerprint(SolutionAlgorithm.iterationThreshold, SolutionAlgorithm.weakPerturbationThreshold,
+                SolutionAlgorithm.numAttemptExchangeThreshold, SolutionAlgorithm.targetReachedRounds,
+                SolutionAlgorithm.seenLocalOptimaCapacity,
+                SolutionAlgorithm.ROUTE_MINIMIZATION ? 1 : 0, SolutionAlgorithm.LOWER_BOUND_TERMINATION ? 1 : 0,
+                SolutionAlgorithm.ADAPTIVE_ITERATION_CONTROL ? 1 : 0,
+                SolutionAlgorithm.PARALLEL_STRONG_PERTURBATION ? 1 : 0);
+        for (int numExchanges : SolutionAlgorithm.numExchanges) hash = fingerprint(hash, numExchanges);
+        return hash;
+    }
+
+    /**
+     * Polynomial hash of the values, each value is mixed with the SplitMix64 finalizer.
+     */
+    static long fingerprint(long... values) {
+        long hash = 0;
+        for (long value : values) {
+            long z = value + 0x9e3779b97f4a7c15L;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            hash = hash * 31 + (z ^ (z >>> 31));
+        }
+        return hash;
+    }
+
+    static void writeSolutions(DataOutputStream out, List<List<Route>> solutions) throws IOException {
+        out.writeInt(solutions.size());
+        for (List<Route> solution : solutions) writeSolution(out, solution);
+    }
+
+    static void writeSolution(DataOutputStream out, List<Route> solution) throws IOException {
+        out.writeInt(solution.size());
+        for (Route route : solution) {
+            out.writeInt(route.getLength());
+            for (Node u : route.routedPath) out.writeInt(u.id);
+            for (double arrivalTime : route.arrivalTimes) out.writeDouble(arrivalTime);
+        }
+    }
+
+    static List<List<Route>> readSolutions(DataInputStream in, DataModel dataModel) throws IOException {
+        int n = in.readInt();
+        List<List<Route>> solutions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) solutions.add(readSolution(in, dataModel));
+        return solutions;
+    }
+
+    static List<Route> readSolution(DataInputStream in, DataModel dataModel) throws IOException {
+        int numRoutes = in.readInt();
+        List<Route> solution = new ArrayList<>(numRoutes);
+        for (int r = 0; r < numRoutes; r++) {
+            int length = in.readInt();
+            List<Node> routedPath = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) routedPath.add(dataModel.getNode(in.readInt()));
+            Route route = new Route(dataModel, routedPath);
+            for (int i = 0; i < length; i++) route.arrivalTimes.set(i, in.readDouble());
+            solution.add(route);
+        }
+        return solution;
+    }
+
+    /**
+     * Writes checkpoints to a file in a background thread, so the search only pays for the encoding.
+     * Only the latest checkpoint is kept: if the writer is behind, older pending checkpoints are skipped.
+     * A checkpoint is written to a temporary file, forced to disk, then atomically moved to the checkpoint file,
+     * so the checkpoint file is always complete.
+     */
+    static class Writer implements Closeable {
+        final Path file, tmpFile;
+        final long interval;  // ns between 2 checkpoints
+        final AtomicReference<byte[]> pending = new AtomicReference<>();
+        final Thread writerThread;
+        volatile boolean closed;
+        long lastCheckpointTime = System.nanoTime();
+
+        Writer(Path file, long interval) {
+            this.file = file;
+            this.tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+            this.interval = interval;
+            writerThread = new Thread(this::writeUntilClosed, "checkpoint-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+
+        /**
+         * @return true if a checkpoint should be taken now (called by the search thread)
+         */
+        boolean isDue() {
+            return System.nanoTime() - lastCheckpointTime >= interval;
+        }
+
+        void submit(byte[] checkpoint) {
+            lastCheckpointTime = System.nanoTime();
+            pending.set(checkpoint);
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        void writeUntilClosed() {
+            while (true) {
+                byte[] checkpoint = pending.getAndSet(null);
+                if (checkpoint != null) {
+                    try {
+                        write(checkpoint);
+                    } catch (IOException e) {
+                        logger.severe("Cannot write the checkpoint " + file + ": " + e.getMessage());
+                    }
+                    continue;
+                }
+                if (closed) return;
+                synchronized (this) {
+                    if (pending.get() == null && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        void write(byte[] checkpoint) throws IOException {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * Write the pending checkpoint (if any), then stop the writer thread.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            synchronized (this) {
+                notifyAll();
+            }
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -65,9 +65,7 @@ public class ClusterRouteMerge implements ConstructionAlgorithm {
         int idealDemandPerCluster = dataModel.getTotalDemands() / numClusters;
 
         // Order customer based on latest service time (due time)
-        List<Node> orderedCustomers = new ArrayList<>(dataModel.getDemandNodes());
-        orderedCustomers.sort(Comparator.comparingInt(a -> a.dueTime));
-        Queue<Node> queue = new LinkedList<>(orderedCustomers);
+        Queue<Node> queue = new LinkedList<>(dataModel.getCustomersByDueTime());
 
         // Distribute the (sorted) demand nodes to the numClusters ordered clusters
         while (!queue.isEmpty()) {
@@ -111,12 +109,12 @@ public class ClusterRouteMerge implements ConstructionAlgorithm {
     List<Route> constructRoute(List<Node> cluster) {
         List<Node> orderedCustomers = new ArrayList<>(cluster);
         // Rank the demand nodes in decreasing order of travel time from depot
-        orderedCustomers.sort((a, b) -> Double.compare(dataModel.distFromDepot(b), dataModel.distFromDepot(a)));
+        dataModel.sortByDecreasingDistanceFromDepot(orderedCustomers);
 //        orderedCustomers.sort(Comparator.comparingInt(a -> a.readyTime));
 
         List<Route> bestRoutes = MTSolomonAlgorithm.run(orderedCustomers, 0, dataModel);
 
-        orderedCustomers.sort(Comparator.comparingDouble(a -> a.dueTime));
+        dataModel.sortByDueTime(orderedCustomers);
         List<Route> bestRoutes2 = MTSolomonAlgorithm.run(orderedCustomers, 0, dataModel);
 
         bestRoutes = bestRoutes.size() < bestRoutes2.size() ? bestRoutes : bestRoutes2;
@@ -141,6 +139,10 @@ public class ClusterRouteMerge implements ConstructionAlgorithm {
                 .map(c -> new Route(dataModel, c)).collect(Collectors.toList());
         routes.forEach(Route::addDummyDepot);  // Step 5.1: add a dummy depot to each route
         orderedCustomers.subList(0, m).clear();  // remove first m customers from the list
+        // Insertion costs of each route, refreshed only when the route is modified
+        Parameter parameter = new Parameter();
+        List<InsertionCostBatch> batches = routes.stream()
+                .map(route -> new InsertionCostBatch(route, dataModel, parameter)).collect(Collectors.toList());
 
         // Step 5: insert the remaining un-routed demand nodes (customers) into their best feasible positions of m routes
         // For each un-routed customers, we try to find the best route to insert this customer into
@@ -149,7 +151,7 @@ public class ClusterRouteMerge implements ConstructionAlgorithm {
         Iterator<Node> iterator = orderedCustomers.iterator();
         while (iterator.hasNext()) {
             Node customer = iterator.next();
-            RoutePositionPair bestRoutePositionPair = getBestRouteAndPosition(routes, customer);
+            RoutePositionPair bestRoutePositionPair = getBestRouteAndPosition(batches, customer);
             if (bestRoutePositionPair != null) {  // can insert the customer into 1 of the routes
                 Route bestRoute = bestRoutePositionPair.route;
                 int bestPosition = bestRoutePositionPair.position;
@@ -174,20 +176,20 @@ public class ClusterRouteMerge implements ConstructionAlgorithm {
     /**
      * Find the best feasible route to insert the customer u into.
      *
-     * @param routes the list of candidate routes that the customer u can be inserted into
+     * @param batches the insertion costs of the candidate routes that the customer u can be inserted into
      * @param u the new customer to be inserted
      * @return a RoutePositionPair representing the best feasible route and position, or null if no feasible route found
      */
-    RoutePositionPair getBestRouteAndPosition(List<Route> routes, Node u) {
+    RoutePositionPair getBestRouteAndPosition(List<InsertionCostBatch> batches, Node u) {
         ValueAndPosition bestValueAndPosition = null;
         Route routeToInsert = null;
 
-        for (Route route : routes) {
-            ValueAndPosition valueAndPosition = MTSolomonAlgorithm.getC2ValueAndPosition(route, u, dataModel, new Parameter());
+        for (InsertionCostBatch batch : batches) {
+            ValueAndPosition valueAndPosition = MTSolomonAlgorithm.getC2ValueAndPosition(batch, u);
             if (valueAndPosition != null
                     && (bestValueAndPosition == null || bestValueAndPosition.value < valueAndPosition.value)) {
                 bestValueAndPosition = valueAndPosition;
-                routeToInsert = route;
+                routeToInsert = batch.route;
             }
         }
         return routeToInsert != null ? new RoutePositionPair(routeToInsert, bestValueAndPosition.position) : null;
@@ -17,9 +17,12 @@ import java.util.stream.Collectors;
  *          1.3. Merge these solutions iteratively
  *      2. Improvement phase
  *
+ * The best solution of all # clusters is kept in a SharedIncumbent (possibly shared with other searches),
+ * a DFS branch is pruned once it cannot end with fewer vehicles than the incumbent.
  */
 public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
     DataModel dataModel;
+    SharedIncumbent incumbent = new SharedIncumbent();
     static final int NUM_CLUSTER_THRESHOLD = 20;
     static final int DELTA_THRESHOLD = 4;
     static final Logger logger = Logger.getLogger(MTVRPTW.class.getName());
@@ -29,10 +32,13 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
         this.dataModel = dataModel;
         List<List<Route>> solutions = new ArrayList<>();
         // Try different # of clusters
-        for (int numClusters = 1; numClusters <= NUM_CLUSTER_THRESHOLD; numClusters++) {
+        for (int numClusters = 1; numClusters <= NUM_CLUSTER_THRESHOLD && !incumbent.isTargetReached(); numClusters++) {
             // Do 3 steps: cluster, parallel construction, merge
             List<Route> solution = run(numClusters);
-            if (solution != null) solutions.add(solution);
+            if (solution != null) {
+                solutions.add(solution);
+                incumbent.offer(dataModel, solution);
+            }
         }
 
         List<Route> finalSolution = Utils.getBestSolution(solutions);
@@ -45,17 +51,23 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
 
         // route-merge-improve in depth-first order
         List<List<Route>> solutions = new ArrayList<>();
-        dfs(clusters, solutions, new ArrayList<>(), Collections.singletonList(0.0), dataModel.getDemandNodes(), 0, numClusters);
+        dfs(clusters, solutions, new ArrayList<>(), Collections.singletonList(0.0), new HashSet<>(dataModel.getDemandNodes()), 0, numClusters);
 
         List<Route> bestSolution = Utils.getBestSolution(solutions);
 //        logger.info("DFS solution, # vehicles: " + (bestSolution == null ? "-1" : bestSolution.size()));
         return bestSolution;
     }
 
+    /**
+     * Route-merge-improve the clusters from i, for each departure time of cluster i.
+     * A branch is pruned once its merged solution has more long routes (see getNumLongRoutes)
+     * than the incumbent # vehicles, and the whole DFS stops once the incumbent reaches its target.
+     */
     void dfs(List<List<Node>> clusters, List<List<Route>> solutions, List<Route> prevMergedSolution,
              List<Double> departureTimes, Set<Node> unRoutedCustomers, int i, int numClusters) {
         if (i < numClusters) {
             for (double departureTime : departureTimes) {
+                if (incumbent.isTargetReached()) return;
                 // Construct a solution for the current sub-MTVRPTW
                 List<Route> routedCluster = constructRoutesParallel(clusters.get(i), departureTime);
                 // Remove the newly routed customers from list of un-routed
@@ -65,6 +77,10 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
                 List<Route> curMergedSolution = mergeRoutes(prevMergedSolution, routedCluster);
                 // Apply improvement method for curMergedSolution
                 curMergedSolution = runSolutionImprovement(curMergedSolution);
+                if (getNumLongRoutes(curMergedSolution) > incumbent.getNumVehicles()) {  // cannot beat the incumbent
+                    unRoutedCustomers.addAll(newlyRoutedCustomers);
+                    continue;
+                }
                 // Get the list of possible departure times (from depot) for the next cluster
                 List<Double> nextDepartureTimes = selectDepartureTimes(routedCluster, unRoutedCustomers);
                 // Continue DFS route-merge-improve
@@ -77,6 +93,15 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
         }
     }
 
+    /**
+     * # routes with at least DELTA_THRESHOLD demand nodes, a lower bound of the # vehicles of any solution
+     * completed from this one in the DFS: merging keeps every route of the previous clusters (possibly extended),
+     * and the vehicle number reduction only re-routes the shorter routes.
+     */
+    static int getNumLongRoutes(List<Route> solution) {
+        return (int) solution.stream().filter(r -> r.getNumDemandNodes() >= DELTA_THRESHOLD).count();
+    }
+
     /**
      * Select m arrival times (at the depot) from the previous sub-MTVRPTW (cluster) plus the setup time at depot
      * as m departure times for the next sub-MTVRPTW.
@@ -115,10 +140,8 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
 
         // 3.1.1 step 3: distribute demand nodes to clusters
         // Priority Queue ordered by latest service time
-        List<Node> orderedCustomers = new ArrayList<>(dataModel.getDemandNodes());
-        // Rank demand nodes in increasing order of latest service time
-        orderedCustomers.sort(Comparator.comparingInt(a -> a.dueTime));
-        Queue<Node> queue = new LinkedList<>(orderedCustomers);
+        // Rank demand nodes in increasing order of latest service time (precomputed by the data model)
+        Queue<Node> queue = new LinkedList<>(dataModel.getCustomersByDueTime());
 
         // Step 3: distribute the (sorted) demand nodes to the numClusters ordered clusters
         while (!queue.isEmpty()) {
@@ -162,10 +185,10 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
     List<Route> constructRoutesParallel(List<Node> cluster, double departureTimeFromDepot) {
         List<Node> orderedCustomers = new ArrayList<>(cluster);
         // Step 2: rank the demand nodes in decreasing order of travel time from depot
-        orderedCustomers.sort((a, b) -> Double.compare(dataModel.distFromDepot(b), dataModel.distFromDepot(a)));
+        dataModel.sortByDecreasingDistanceFromDepot(orderedCustomers);
         List<Route> bestRoutes = MTSolomonAlgorithm.run(orderedCustomers, departureTimeFromDepot, dataModel);
 
-        orderedCustomers.sort(Comparator.comparingDouble(a -> a.dueTime));
+        dataModel.sortByDueTime(orderedCustomers);
         List<Route> bestRoutes2 = MTSolomonAlgorithm.run(orderedCustomers, departureTimeFromDepot, dataModel);
 
         bestRoutes = bestRoutes.size() < bestRoutes2.size() ? bestRoutes : bestRoutes2;
@@ -201,6 +224,10 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
                 .map(c -> new Route(dataModel, c)).collect(Collectors.toList());
         routes.forEach(Route::addDummyDepot);  // Step 5.1: add a dummy depot to each route
         orderedCustomers.subList(0, m).clear();  // remove first m customers from the list
+        // Insertion costs of each route, refreshed only when the route is modified
+        Parameter parameter = new Parameter();
+        List<InsertionCostBatch> batches = routes.stream()
+                .map(route -> new InsertionCostBatch(route, dataModel, parameter)).collect(Collectors.toList());
 
         // Step 5: insert the remaining un-routed demand nodes (customers) into their best feasible positions of m routes
         // For each un-routed customers, we try to find the best route to insert this customer into
@@ -209,7 +236,7 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
         Iterator<Node> iterator = orderedCustomers.iterator();
         while (iterator.hasNext()) {
             Node customer = iterator.next();
-            RoutePositionPair bestRoutePositionPair = getBestRouteAndPosition(routes, customer);
+            RoutePositionPair bestRoutePositionPair = getBestRouteAndPosition(batches, customer);
             if (bestRoutePositionPair != null) {  // can insert the customer into 1 of the routes
                 Route bestRoute = bestRoutePositionPair.route;
                 int bestPosition = bestRoutePositionPair.position;
@@ -234,20 +261,20 @@ public class ClusterRouteMergeDFS implements ConstructionAlgorithm {
     /**
      * Find the best feasible route to insert the customer u into.
      *
-     * @param routes the list of candidate routes that the customer u can be inserted into
+     * @param batches the insertion costs of the candidate routes that the customer u can be inserted into
      * @param u the new customer to be inserted
      * @return a RoutePositionPair representing the best feasible route and position, or null if no feasible route found
      */
-    RoutePositionPair getBestRouteAndPosition(List<Route> routes, Node u) {
+    RoutePositionPair getBestRouteAndPosition(List<InsertionCostBatch> batches, Node u) {
         ValueAndPosition bestValueAndPosition = null;
         Route routeToInsert = null;
 
-        for (Route route : routes) {
-            ValueAndPosition valueAndPosition = MTSolomonAlgorithm.getC2ValueAndPosition(route, u, dataModel, new Parameter());
+        for (InsertionCostBatch batch : batches) {
+            ValueAndPosition valueAndPosition = MTSolomonAlgorithm.getC2ValueAndPosition(batch, u);
             if (valueAndPosition != null
                     && (bestValueAndPosition == null || bestValueAndPosition.value < valueAndPosition.value)) {
                 bestValueAndPosition = valueAndPosition;
-                routeToInsert = route;
+                routeToInsert = batch.route;
             }
         }
         return routeToInsert != null ? new RoutePositionPair(routeToInsert, bestValueAndPosition.position) : null;
@@ -0,0 +1,167 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Convergence trace of an ILS run (SolutionAlgorithm): 1 sample per iteration and per improving move
+ * (time, ILS run, iteration, # vehicles, distance, operator that produced the solution), written to a CSV file.
+ *
+ * Recording never blocks the search: samples are put into a lock-free single-producer single-consumer ring buffer
+ * (primitive arrays, no allocation), and a background thread drains the buffer to the file every DRAIN_INTERVAL.
+ * If the buffer is full, the sample is dropped (and counted), the search does not wait for the writer.
+ * Only 1 thread (the thread running the ILS) may record samples.
+ *
+ * Usage of the reader: java ConvergenceTrace <trace file or directory>...
+ * prints the time to first reach the best # vehicles of each trace.
+ */
+public class ConvergenceTrace implements Closeable {
+    static final int CAPACITY = 1 << 16;  // power of 2
+    static final int MASK = CAPACITY - 1;
+    static final long DRAIN_INTERVAL = 10_000_000;  // ns
+    static final String HEADER = "time_ms,num_exchanges,iteration,vehicles,distance,operator";
+    static final Logger logger = Logger.getLogger(ConvergenceTrace.class.getName());
+
+    /**
+     * The operator that produced the solution of a sample.
+     */
+    enum Operator {
+        CONSTRUCTION,  // initial solution (MT-Solomon and route minimization)
+        OR_OPT,  // local optimum of an ILS iteration
+        RELOCATE,  // reduction of # vehicles
+        MIGRATION,  // solution adopted from another island
+        STRONG_PERTURBATION,
+        DISTANCE_OPTIMIZATION  // final solution
+    }
+
+    // Ring buffer, slot i holds the sample with sequence number i (mod CAPACITY)
+    final long[] times = new long[CAPACITY];
+    final int[] numExchanges = new int[CAPACITY], iterations = new int[CAPACITY], numVehicles = new int[CAPACITY];
+    final double[] distances = new double[CAPACITY];
+    final byte[] operators = new byte[CAPACITY];
+    // head: sequence number of the next sample to record (written by the producer only)
+    // tail: sequence number of the next sample to write to file (written by the writer only)
+    final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    volatile long numDropped;  // written by the producer only
+    volatile boolean closed;
+
+    final Writer writer;
+    final Thread writerThread;
+
+    ConvergenceTrace(File file) throws IOException {
+        writer = new BufferedWriter(new FileWriter(file));
+        writer.write(HEADER + "\n");
+        writerThread = new Thread(this::drainUntilClosed, "convergence-trace-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Record a sample (producer thread only, lock-free and wait-free).
+     * @param time time since the start of the run (ns)
+     */
+    void record(long time, int numExchanges, int iteration, int numVehicles, double distance, Operator operator) {
+        long h = head.get();
+        if (h - tail.get() >= CAPACITY) {  // full, the writer is behind
+            numDropped++;
+            return;
+        }
+        int i = (int) (h & MASK);
+        times[i] = time;
+        this.numExchanges[i] = numExchanges;
+        iterations[i] = iteration;
+        this.numVehicles[i] = numVehicles;
+        distances[i] = distance;
+        operators[i] = (byte) operator.ordinal();
+        head.lazySet(h + 1);  // publish the slot (ordered after the writes above)
+    }
+
+    void drainUntilClosed() {
+        try {
+            while (!closed) {
+                drain();
+                LockSupport.parkNanos(DRAIN_INTERVAL);
+            }
+            drain();
+        } catch (IOException e) {
+            logger.severe("Cannot write the convergence trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write all published samples to file, then release their slots.
+     */
+    void drain() throws IOException {
+        long t = tail.get(), h = head.get();
+        Operator[] values = Operator.values();
+        for (; t < h; t++) {
+            int i = (int) (t & MASK);
+            writer.write(String.format(Locale.ROOT, "%.3f,%d,%d,%d,%.2f,%s%n", times[i] / 1e6, numExchanges[i],
+                    iterations[i], numVehicles[i], distances[i], values[operators[i]]));
+        }
+        tail.lazySet(t);
+    }
+
+    /**
+     * Stop the writer thread after writing the remaining samples.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        if (numDropped > 0) logger.warning(numDropped + " samples dropped from the convergence trace");
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            if (file.isDirectory()) collectTraceFiles(file, files);
+            else files.add(file);
+        }
+        Collections.sort(files);
+        System.out.println(String.format("%-40s %8s %14s %10s %8s %-20s %10s", "trace", "vehicles",
+                "time_to_best_s", "iteration", "samples", "operator", "distance"));
+        for (File file : files) System.out.println(summarize(file));
+    }
+
+    static void collectTraceFiles(File directory, List<File> files) {
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            if (file.isDirectory()) collectTraceFiles(file, files);
+            else if (file.getName().endsWith(".csv")) files.add(file);
+        }
+    }
+
+    /**
+     * Summary of a trace: best # vehicles, time (and ILS iteration, operator) when it was first reached,
+     * # samples and final distance.
+     */
+    static String summarize(File file) throws IOException {
+        int bestNumVehicles = Integer.MAX_VALUE, numSamples = 0;
+        String[] firstBest = null, last = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            reader.readLine();  // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                int vehicles = Integer.parseInt(values[3]);
+                if (vehicles < bestNumVehicles) {
+                    bestNumVehicles = vehicles;
+                    firstBest = values;
+                }
+                last = values;
+                numSamples++;
+            }
+        }
+        if (firstBest == null) return String.format("%-40s empty", file.getPath());
+        return String.format(Locale.ROOT, "%-40s %8d %14.3f %10s %8d %-20s %10s", file.getPath(), bestNumVehicles,
+                Double.parseDouble(firstBest[0]) / 1e3, firstBest[2], numSamples, firstBest[5], last[4]);
+    }
+}
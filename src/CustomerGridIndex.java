@@ -0,0 +1,173 @@
+import java.util.*;
+
+/**
+ * A spatial-temporal index over the un-routed customers.
+ * Customers are bucketed into a uniform grid over their (x, y) coordinates, and each cell keeps
+ * the latest due time and the shortest service time of the customers it was built with.
+ * These aggregates stay valid lower/upper bounds after deletion, so they are never recomputed.
+ *
+ * Nearest feasible customer queries expand ring by ring (Chebyshev distance in cells) around the last customer
+ * of the route, and stop as soon as no customer in the remaining rings can beat the best customer found so far.
+ * Deletion is O(1) (swap-remove inside the cell).
+ */
+public class CustomerGridIndex {
+    // Target average number of customers per cell
+    static final int CUSTOMERS_PER_CELL = 2;
+    // Guard against rounding differences between the geometric lower bound and the distance table
+    static final double DISTANCE_TOLERANCE = 1e-6;
+
+    DataModel dataModel;
+    double minX, minY, cellSize;
+    int numCols, numRows;
+    List<List<Node>> cells;
+    int[] cellOf;  // index of the cell containing each customer (by customer id), -1 if not in the index
+    int[] positionInCell;  // position of each customer in its cell (by customer id)
+    int[] latestDueTime;  // latest due time of all customers initially in each cell
+    int minServiceTime;  // shortest service time of all customers initially in the index
+    int size;
+
+    public CustomerGridIndex(DataModel dataModel, Collection<Node> customers) {
+        this.dataModel = dataModel;
+        Node depot = dataModel.getDepot();
+
+        // Bounding box of all customers (and the depot, since queries can start from the depot)
+        minX = depot.xCoord;
+        minY = depot.yCoord;
+        double maxX = depot.xCoord, maxY = depot.yCoord;
+        for (Node u : customers) {
+            minX = Math.min(minX, u.xCoord);
+            minY = Math.min(minY, u.yCoord);
+            maxX = Math.max(maxX, u.xCoord);
+            maxY = Math.max(maxY, u.yCoord);
+        }
+        double width = Math.max(maxX - minX, 1), height = Math.max(maxY - minY, 1);
+        int targetNumCells = Math.max(1, customers.size() / CUSTOMERS_PER_CELL);
+        cellSize = Math.sqrt(width * height / targetNumCells);
+        numCols = (int) (width / cellSize) + 1;
+        numRows = (int) (height / cellSize) + 1;
+
+        cells = new ArrayList<>(numCols * numRows);
+        for (int c = 0; c < numCols * numRows; c++) cells.add(new ArrayList<>());
+        latestDueTime = new int[numCols * numRows];
+        Arrays.fill(latestDueTime, Integer.MIN_VALUE);
+        minServiceTime = Integer.MAX_VALUE;
+
+        int maxId = customers.stream().mapToInt(u -> u.id).max().orElse(0);
+        cellOf = new int[maxId + 1];
+        positionInCell = new int[maxId + 1];
+        Arrays.fill(cellOf, -1);
+        for (Node u : customers) {
+            int cell = getCell(u.xCoord, u.yCoord);
+            cellOf[u.id] = cell;
+            positionInCell[u.id] = cells.get(cell).size();
+            cells.get(cell).add(u);
+            latestDueTime[cell] = Math.max(latestDueTime[cell], u.dueTime);
+            minServiceTime = Math.min(minServiceTime, u.serviceTime);
+        }
+        size = customers.size();
+    }
+
+    int getCell(double x, double y) {
+        int col = Math.min(numCols - 1, (int) ((x - minX) / cellSize));
+        int row = Math.min(numRows - 1, (int) ((y - minY) / cellSize));
+        return row * numCols + col;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Node u) {
+        return u.id < cellOf.length && cellOf[u.id] != -1;
+    }
+
+    /**
+     * Remove customer u from the index.
+     * @return true if u was in the index
+     */
+    public boolean remove(Node u) {
+        if (!contains(u)) return false;
+        List<Node> cell = cells.get(cellOf[u.id]);
+        int p = positionInCell[u.id];
+        Node last = cell.remove(cell.size() - 1);
+        if (last != u) {  // move the last customer of the cell into the freed position
+            cell.set(p, last);
+            positionInCell[last.id] = p;
+        }
+        cellOf[u.id] = -1;
+        size--;
+        return true;
+    }
+
+    /**
+     * Find the customer that can be appended to the end of the route (in the current trip)
+     * with the earliest ending service time.
+     * A customer is feasible if the capacity of the current trip is not exceeded, it is reached before its due time,
+     * and the vehicle can still return to the depot on time after serving it.
+     * Ties are broken by the smallest customer id.
+     *
+     * @return the best customer, or null if no feasible customer exists
+     */
+    public Node findEarliestFeasibleSuccessor(Route route) {
+        int last = route.getLength() - 1;
+        Node prev = route.get(last);
+        double departureTime = route.getStartingServiceTimeAt(last) + prev.serviceTime;
+        int remainingCapacity = dataModel.getVehicleCapacity() - route.getLastTripLoad();
+        double depotDueTime = dataModel.getDepot().dueTime;
+
+        int prevCol = Math.min(numCols - 1, Math.max(0, (int) ((prev.xCoord - minX) / cellSize)));
+        int prevRow = Math.min(numRows - 1, Math.max(0, (int) ((prev.yCoord - minY) / cellSize)));
+        int maxRing = Math.max(Math.max(prevCol, numCols - 1 - prevCol), Math.max(prevRow, numRows - 1 - prevRow));
+
+        Node bestCustomer = null;
+        double earliestTime = Double.MAX_VALUE;  // earliest time the vehicle can continue the trip
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // No customer in this ring (or further) can finish service before the best customer found so far
+            double ringLowerBound = departureTime + Math.max(0, ring - 1) * cellSize + minServiceTime;
+            if (ringLowerBound - DISTANCE_TOLERANCE > earliestTime) break;
+            for (int row = prevRow - ring; row <= prevRow + ring; row++) {
+                if (row < 0 || row >= numRows) continue;
+                boolean isBorderRow = row == prevRow - ring || row == prevRow + ring;
+                // Visit only the cells on the border of the ring
+                for (int col = prevCol - ring; col <= prevCol + ring; col += isBorderRow ? 1 : 2 * ring) {
+                    if (col >= 0 && col < numCols) {
+                        int cell = row * numCols + col;
+                        if (cells.get(cell).isEmpty()) continue;
+                        double minArrivalTime = departureTime + getMinDistanceToCell(prev, row, col) - DISTANCE_TOLERANCE;
+                        // Every customer in the cell would be reached after its due time
+                        if (minArrivalTime > latestDueTime[cell]) continue;
+                        if (minArrivalTime + minServiceTime > earliestTime) continue;
+                        for (Node u : cells.get(cell)) {
+                            if (u.demand > remainingCapacity) continue;
+                            double arrivalTimeAtCustomer = departureTime + dataModel.dist(prev, u);
+                            double endingServiceTime = Math.max(arrivalTimeAtCustomer, u.readyTime) + u.serviceTime;
+                            // Also need to check if the vehicle could return to depot in time
+                            double arrivalTimeAtDepot = endingServiceTime + dataModel.distFromDepot(u);
+                            if (arrivalTimeAtCustomer <= u.dueTime && arrivalTimeAtDepot <= depotDueTime
+                                    && (endingServiceTime < earliestTime
+                                    || (endingServiceTime == earliestTime && u.id < bestCustomer.id))) {
+                                earliestTime = endingServiceTime;
+                                bestCustomer = u;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return bestCustomer;
+    }
+
+    /**
+     * Euclidean distance from node u to the closest point of the cell at (row, col).
+     */
+    double getMinDistanceToCell(Node u, int row, int col) {
+        double cellMinX = minX + col * cellSize, cellMinY = minY + row * cellSize;
+        double dx = Math.max(0, Math.max(cellMinX - u.xCoord, u.xCoord - (cellMinX + cellSize)));
+        double dy = Math.max(0, Math.max(cellMinY - u.yCoord, u.yCoord - (cellMinY + cellSize)));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -1,62 +1,76 @@
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.IntStream;
 
 /**
  * A data model to store all information related to a test case.
+ * The attributes of the nodes are also stored as primitive arrays indexed by node id (struct of arrays),
+ * for the hot loops of the operators: reading them by id (e.g. getReadyTime(id)) does not dereference
+ * the Node objects, which remain available as a view of the same data.
+ *
+ * The data model is immutable once constructed (compiled instance): all fields are final, the arrays are never
+ * returned, the set of demand nodes and the orderings of the customers used by the construction heuristics are
+ * computed once, and only read-only views are returned.
+ * It can be shared by any number of solver threads without synchronization.
  */
 public class DataModel {
-    private double[][] distanceTable;
-    private int[][] timeWindows;
-    private int[] serviceTimes;
-    private int[] demands;
-    private double[] latestDepartureTimes;  // latest time the vehicle can leave the depot and still serve each customer
-    private int vehicleCapacity;
-    private Node[] nodes;  // depot + all customers
-    private int numNodes;  // depot + customers
+    private final DistanceStore distanceTable;  // on-heap or off-heap, depending on the # nodes
+    private final int[] readyTimes, dueTimes;
+    private final int[] serviceTimes;
+    private final int[] demands;
+    private final double[] latestDepartureTimes;  // latest time the vehicle can leave the depot and still serve each customer
+    private final int vehicleCapacity;
+    private final Node[] nodes;  // depot + all customers
+    private final int numNodes;  // depot + customers
+    private final Set<Node> demandNodes;  // unmodifiable
+    // Unmodifiable orderings of all customers, ties broken by the iteration order of demandNodes
+    private final List<Node> customersByDecreasingDistanceFromDepot, customersByDueTime;
 
     public DataModel(String inputFilePath, int numCustomers) {
         numNodes = numCustomers + 1;
-        try {
-            this.readInputs(inputFilePath);
-        }  catch (FileNotFoundException e) {
-            System.out.println("Cannot find file");
-            e.printStackTrace();
-        }
-    }
-
-    void readInputs(String inputFilePath) throws FileNotFoundException {
-        File file = new File(inputFilePath);
-        Scanner scan = new Scanner(file);
+        try (Scanner scan = new Scanner(new File(inputFilePath))) {
+            for (int i = 0; i < 4; i++) scan.nextLine();
+            scan.nextInt();
+            vehicleCapacity = scan.nextInt();
+            for (int i = 0; i < 5; i++) scan.nextLine();
 
-        for (int i = 0; i < 4; i++) scan.nextLine();
-        scan.nextInt();
-        vehicleCapacity = scan.nextInt();
-        for (int i = 0; i < 5; i++) scan.nextLine();
+            nodes = new Node[numNodes];
+            for (int i = 0; i < numNodes; i++) {
+                nodes[i] = new Node(scan.nextInt(), scan.nextDouble(), scan.nextDouble(),
+                        (int) scan.nextDouble(), (int) scan.nextDouble(), (int) scan.nextDouble(), (int) scan.nextDouble());
+            }
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException("Cannot find file " + inputFilePath, e);
+        }
 
-        distanceTable = new double[numNodes][numNodes];
-        timeWindows = new int[numNodes][2];
+        distanceTable = DistanceStore.create(nodes);
+        readyTimes = new int[numNodes];
+        dueTimes = new int[numNodes];
         serviceTimes = new int[numNodes];
         demands = new int[numNodes];
         latestDepartureTimes = new double[numNodes];
-        nodes = new Node[numNodes];
-
         for (int i = 0; i < numNodes; i++) {
-            nodes[i] = new Node(scan.nextInt(), scan.nextDouble(), scan.nextDouble(),
-                    (int) scan.nextDouble(), (int) scan.nextDouble(), (int) scan.nextDouble(), (int) scan.nextDouble());
-        }
-
-        for (int i = 0; i < numNodes; i++) {
-            for (int j = 0; j < numNodes; j++) {
-                distanceTable[i][j] = Math.sqrt(Math.pow(nodes[i].xCoord - nodes[j].xCoord, 2) + Math.pow(nodes[i].yCoord - nodes[j].yCoord, 2));
-            }
-            timeWindows[i][0] = nodes[i].readyTime;
-            timeWindows[i][1] = nodes[i].dueTime;
+            readyTimes[i] = nodes[i].readyTime;
+            dueTimes[i] = nodes[i].dueTime;
             serviceTimes[i] = nodes[i].serviceTime;
             demands[i] = nodes[i].demand;
             latestDepartureTimes[i] = Math.min(nodes[i].dueTime - distFromDepot(nodes[i]), nodes[0].dueTime - 2 * distFromDepot(nodes[i]) - nodes[i].serviceTime);
         }
+
+        // Compute the set of demand nodes and the orderings of the customers once
+        Set<Node> customers = new HashSet<>();
+        for (int i = 1; i < numNodes; i++) customers.add(nodes[i]);  // Skip depot
+        demandNodes = Collections.unmodifiableSet(customers);
+
+        List<Node> byDistance = new ArrayList<>(customers);
+        sortByDecreasingDistanceFromDepot(byDistance);
+        customersByDecreasingDistanceFromDepot = Collections.unmodifiableList(byDistance);
+
+        List<Node> byDueTime = new ArrayList<>(customers);
+        sortByDueTime(byDueTime);
+        customersByDueTime = Collections.unmodifiableList(byDueTime);
     }
 
     // Getters & setters
@@ -64,20 +78,51 @@ public class DataModel {
         return IntStream.of(demands).sum();
     }
 
+    public int getNumNodes() {
+        return numNodes;
+    }
+
     public int getVehicleCapacity() {
         return vehicleCapacity;
     }
 
+    /**
+     * @return all customers (read-only, copy it to modify)
+     */
     public Set<Node> getDemandNodes() {
-        Set<Node> demandNodes = new HashSet<>();
-        // Skip depot
-        for (int i = 1; i < numNodes; i++)
-            demandNodes.add(nodes[i]);
         return demandNodes;
     }
 
+    /**
+     * @return all customers in decreasing order of distance from the depot (read-only)
+     */
+    public List<Node> getCustomersByDecreasingDistanceFromDepot() {
+        return customersByDecreasingDistanceFromDepot;
+    }
+
+    /**
+     * @return all customers in increasing order of due time (read-only)
+     */
+    public List<Node> getCustomersByDueTime() {
+        return customersByDueTime;
+    }
+
+    /**
+     * Sort customers in decreasing order of distance from the depot (stable: ties keep their order in the list).
+     */
+    public void sortByDecreasingDistanceFromDepot(List<Node> customers) {
+        customers.sort((a, b) -> Double.compare(distFromDepot(b), distFromDepot(a)));
+    }
+
+    /**
+     * Sort customers in increasing order of due time (stable: ties keep their order in the list).
+     */
+    public void sortByDueTime(List<Node> customers) {
+        customers.sort(Comparator.comparingInt(u -> dueTimes[u.id]));
+    }
+
     public double distFromDepot(Node node) {
-        return distanceTable[node.id][0];
+        return distanceTable.get(node.id, 0);
     }
 
     public double getLatestDepartureTime(Set<Node> unRoutedCustomers) {
@@ -89,10 +134,39 @@ public class DataModel {
     }
 
     public double dist(Node source, Node destination) {
-        return distanceTable[source.id][destination.id];
+        return distanceTable.get(source.id, destination.id);
+    }
+
+    public double dist(int source, int destination) {
+        return distanceTable.get(source, destination);
+    }
+
+    // Node attributes by id
+    public int getReadyTime(int id) {
+        return readyTimes[id];
+    }
+
+    public int getDueTime(int id) {
+        return dueTimes[id];
+    }
+
+    public int getServiceTime(int id) {
+        return serviceTimes[id];
+    }
+
+    public int getDemand(int id) {
+        return demands[id];
     }
 
     public Node getDepot() {
         return nodes[0];
     }
+
+    public Node getNode(int id) {
+        return nodes[id];
+    }
+
+    DistanceStore getDistanceStore() {
+        return distanceTable;
+    }
 }
@@ -0,0 +1,213 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Storage of the distance matrix between all nodes (depot + customers), indexed by node id.
+ * Stores must be read-only once created, so they can be shared between threads.
+ */
+interface DistanceStore {
+    // Larger instances use an off-heap store (a heap matrix of 5000 nodes takes 200 MB)
+    int OFF_HEAP_THRESHOLD = 5000;
+    // Larger instances do not store the matrix at all (a matrix of 15000 nodes takes 1.8 GB)
+    int MATRIX_FREE_THRESHOLD = 15000;
+
+    double get(int i, int j);
+
+    static double getDistance(Node u, Node v) {
+        return Math.sqrt(Math.pow(u.xCoord - v.xCoord, 2) + Math.pow(u.yCoord - v.yCoord, 2));
+    }
+
+    static DistanceStore create(Node[] nodes) {
+        if (nodes.length < OFF_HEAP_THRESHOLD) return new HeapDistanceStore(nodes);
+        if (nodes.length >= MATRIX_FREE_THRESHOLD) return new MatrixFreeDistanceStore(nodes);
+        try {
+            return MappedDistanceStore.open(nodes);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create the distance file", e);
+        }
+    }
+}
+
+class HeapDistanceStore implements DistanceStore {
+    final double[][] distanceTable;
+
+    HeapDistanceStore(Node[] nodes) {
+        distanceTable = new double[nodes.length][nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = 0; j < nodes.length; j++) distanceTable[i][j] = DistanceStore.getDistance(nodes[i], nodes[j]);
+        }
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return distanceTable[i][j];
+    }
+}
+
+/**
+ * Distance matrix in a file mapped read-only into memory, outside the Java heap (not scanned or copied by the GC).
+ * The file is named after the key of the test case (fingerprint of the # nodes and of the coordinates, the only
+ * inputs of the distances), so that all processes solving the same test case map the same file and share its pages
+ * in the OS page cache. It is written once (atomically) by the first process.
+ *
+ * A mapping is limited to 2 GB, so the matrix is mapped in chunks of 2^chunkShift rows.
+ * File format: MAGIC (int), VERSION (int), # nodes (long), key (long), then the matrix in row-major order
+ * (doubles, native byte order). The header and the size of the file are checked before mapping, a file that does
+ * not match (other test case with the same file name, truncated file) is rewritten.
+ *
+ * The directory is a cache shared by all processes: opening a file marks it as used (modification time),
+ * and the files not used for CACHE_EXPIRY are deleted (a file still mapped by a process stays readable by it).
+ */
+class MappedDistanceStore implements DistanceStore {
+    static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "mtvrptw-distances");
+    static final int MAGIC = 0x4d544453;  // "MTDS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+    static final long CACHE_EXPIRY = TimeUnit.DAYS.toMillis(7);
+    static final Logger logger = Logger.getLogger(MappedDistanceStore.class.getName());
+
+    final int numNodes, chunkShift, chunkMask;
+    final DoubleBuffer[] chunks;
+
+    MappedDistanceStore(Path file, int numNodes, long key) throws IOException {
+        this.numNodes = numNodes;
+        // Largest power of 2 # rows that fits in a mapping
+        int shift = 0;
+        while ((2L << shift) * numNodes * Double.BYTES <= Integer.MAX_VALUE) shift++;
+        chunkShift = shift;
+        chunkMask = (1 << shift) - 1;
+        chunks = new DoubleBuffer[(numNodes + chunkMask) >> chunkShift];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!isValid(channel, numNodes, key)) throw new IOException("Invalid distance file: " + file);
+            for (int c = 0; c < chunks.length; c++) {
+                long firstRow = (long) c << chunkShift;
+                long numRows = Math.min(1L << chunkShift, numNodes - firstRow);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRow * numNodes * Double.BYTES,
+                        numRows * numNodes * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+        }
+    }
+
+    /**
+     * Check the header (magic, version, # nodes, key) and the size of a distance file.
+     */
+    static boolean isValid(FileChannel channel, int numNodes, long key) throws IOException {
+        if (channel.size() != HEADER_SIZE + (long) numNodes * numNodes * Double.BYTES) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) ;
+        return header.getInt(0) == MAGIC && header.getInt(Integer.BYTES) == VERSION
+                && header.getLong(2 * Integer.BYTES) == numNodes && header.getLong(2 * Integer.BYTES + Long.BYTES) == key;
+    }
+
+    /**
+     * Map the distance file of the nodes, write it first if it does not exist (or is not valid).
+     */
+    static MappedDistanceStore open(Node[] nodes) throws IOException {
+        long key = getKey(nodes);
+        Path file = DIRECTORY.resolve(nodes.length + "-" + Long.toHexString(key) + ".bin");
+        deleteExpiredFiles(file);
+        boolean isValid = false;
+        if (Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                isValid = isValid(channel, nodes.length, key);
+            }
+        }
+        if (!isValid) write(nodes, key, file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));  // used
+        return new MappedDistanceStore(file, nodes.length, key);
+    }
+
+    /**
+     * Fingerprint of the # nodes and of the coordinates (SplitMix64 finalizer on each value).
+     */
+    static long getKey(Node[] nodes) {
+        long key = mix(nodes.length);
+        for (Node u : nodes) {
+            key = 31 * key + mix(Double.doubleToLongBits(u.xCoord));
+            key = 31 * key + mix(Double.doubleToLongBits(u.yCoord));
+        }
+        return key;
+    }
+
+    static long mix(long z) {
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Delete the distance files (and temporary files of interrupted writes) not used for CACHE_EXPIRY.
+     * @param inUse the file about to be opened, kept
+     */
+    static void deleteExpiredFiles(Path inUse) {
+        if (!Files.isDirectory(DIRECTORY)) return;
+        long expiry = System.currentTimeMillis() - CACHE_EXPIRY;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY)) {
+            for (Path file : files) {
+                try {
+                    if (!file.equals(inUse) && Files.getLastModifiedTime(file).toMillis() < expiry) Files.delete(file);
+                } catch (IOException e) {  // deleted by another process, or not allowed: not needed to proceed
+                    logger.fine("Cannot delete " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Cannot list " + DIRECTORY + ": " + e.getMessage());
+        }
+    }
+
+    static void write(Node[] nodes, long key, Path file) throws IOException {
+        Files.createDirectories(DIRECTORY);
+        Path tmp = Files.createTempFile(DIRECTORY, "distances", ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+            header.putInt(MAGIC).putInt(VERSION).putLong(nodes.length).putLong(key).flip();
+            while (header.hasRemaining()) channel.write(header);
+            ByteBuffer row = ByteBuffer.allocateDirect(nodes.length * Double.BYTES).order(ByteOrder.nativeOrder());
+            for (Node u : nodes) {
+                row.clear();
+                for (Node v : nodes) row.putDouble(DistanceStore.getDistance(u, v));
+                row.flip();
+                while (row.hasRemaining()) channel.write(row);
+            }
+        }
+        // Other processes only see the complete file
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return chunks[i >> chunkShift].get((i & chunkMask) * numNodes + j);
+    }
+}
+
+/**
+ * Distances computed on demand from the coordinates (all test cases are Euclidean), in O(n) memory.
+ * The coordinates are copied into arrays so that they stay in cache, and the formula is the same as
+ * for the stored matrices, hence the distances are bit-identical.
+ * Computing a distance (2 multiplications and a square root) is faster than a lookup in a cache of pairs.
+ */
+class MatrixFreeDistanceStore implements DistanceStore {
+    final double[] xCoords, yCoords;
+
+    MatrixFreeDistanceStore(Node[] nodes) {
+        xCoords = new double[nodes.length];
+        yCoords = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            xCoords[i] = nodes[i].xCoord;
+            yCoords[i] = nodes[i].yCoord;
+        }
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return Math.sqrt(Math.pow(xCoords[i] - xCoords[j], 2) + Math.pow(yCoords[i] - yCoords[j], 2));
+    }
+}
@@ -2,49 +2,83 @@ import java.util.*;
 
 public class ExchangeAlgorithm {
     static final double EPSILON = 0.01;
+
+    public static void optimizeDistance(List<Route> solution, DataModel dataModel) {
+        optimizeDistance(solution, dataModel, solution);
+    }
+
     /**
      * Exchange with first-improving move.
      * Loop until reach local optimal.
      *
      * For each route in the solution, we iterate through all customers and try to
      * exchange with another customer from another route, accept immediately any improving exchange (move).
+     *
+     * To avoid re-scanning the whole solution after each move, we use don't-look bits:
+     * a customer is skipped once no improving exchange is found for it, and its bit is reset only
+     * when its route is modified. Only routes with at least 1 active customer are (re-)scanned.
+     * Since the exchange operator is symmetric, scanning the customers of the modified routes against
+     * all other routes covers every pair affected by a move, thus the result is still a local optimum.
+     *
      * @param solution input current solution, modify directly this solution
      * @param dataModel
+     * @param activeRoutes routes modified since the solution was last optimized by this algorithm,
+     *                     customers in other routes start with their don't-look bit set
+     * @return the routes modified by the algorithm
      */
-    public static void optimizeDistance(List<Route> solution, DataModel dataModel) {
-        boolean localOptimal = false;
-        whileLoop:
-        while (!localOptimal) {
-            localOptimal = true;
+    public static Set<Route> optimizeDistance(List<Route> solution, DataModel dataModel, Collection<Route> activeRoutes) {
+        Set<Route> modifiedRoutes = new HashSet<>();
+        boolean[] dontLook = new boolean[dataModel.getNumNodes()];
+        Arrays.fill(dontLook, true);
+        // Scan the active routes in the order of the solution (deterministic)
+        Set<Route> activeRouteSet = new HashSet<>(activeRoutes);
+        Deque<Route> queue = new ArrayDeque<>();
+        for (Route r : solution) {
+            if (activeRouteSet.contains(r)) {
+                r.getDemandNodes().forEach(u -> dontLook[u.id] = false);
+                queue.add(r);
+            }
+        }
 
-            for (int r1Idx = 0; r1Idx < solution.size() - 1; r1Idx++) {
-                for (int r2Idx = r1Idx + 1; r2Idx < solution.size(); r2Idx++) {
-                    Route r1 = solution.get(r1Idx), r2 = solution.get(r2Idx);
-                    for (int p1 = 1; p1 < r1.getLength() - 1; p1++) {
-                        Node x1 = r1.get(p1 - 1), y1 = r1.get(p1), z1 = r1.get(p1 + 1);
-                        if (y1 == dataModel.getDepot()) continue;
-                        for (int p2 = 1; p2 < r2.getLength() - 1; p2++) {
-                            Node x2 = r2.get(p2 - 1), y2 = r2.get(p2), z2 = r2.get(p2 + 1);
-                            if (y2 == dataModel.getDepot()) continue;
-                            // gain = dist(before) - dist(after)
-                            double gain = dataModel.dist(x1, y1) + dataModel.dist(y1, z1) + dataModel.dist(x2, y2) + dataModel.dist(y2, z2)
-                                    - (dataModel.dist(x1, y2) + dataModel.dist(y2, z1) + dataModel.dist(x2, y1) + dataModel.dist(y1, z2));
-                            // Only exchange if gaining & feasible
-                            if (gain > EPSILON && Utils.checkExchangeOperator(dataModel, r1, p1, r2, p2)) {
-                                Node u1 = r1.removeCustomerAtIndex(p1);  // u1 == y1
-                                Node u2 = r2.removeCustomerAtIndex(p2);  // u2 == y2
-                                r1.insertAtPosition(p1, u2);
-                                r2.insertAtPosition(p2, u1);
+        while (!queue.isEmpty()) {
+            Route r1 = queue.poll();
+            activeRouteSet.remove(r1);
+            scanLoop:
+            for (int p1 = 1; p1 < r1.getLength() - 1; p1++) {
+                Node x1 = r1.get(p1 - 1), y1 = r1.get(p1), z1 = r1.get(p1 + 1);
+                if (y1 == dataModel.getDepot() || dontLook[y1.id]) continue;
+                for (Route r2 : solution) {
+                    if (r2 == r1) continue;
+                    for (int p2 = 1; p2 < r2.getLength() - 1; p2++) {
+                        Node x2 = r2.get(p2 - 1), y2 = r2.get(p2), z2 = r2.get(p2 + 1);
+                        if (y2 == dataModel.getDepot()) continue;
+                        // gain = dist(before) - dist(after)
+                        double gain = dataModel.dist(x1, y1) + dataModel.dist(y1, z1) + dataModel.dist(x2, y2) + dataModel.dist(y2, z2)
+                                - (dataModel.dist(x1, y2) + dataModel.dist(y2, z1) + dataModel.dist(x2, y1) + dataModel.dist(y1, z2));
+                        // Only exchange if gaining & feasible
+                        if (gain > EPSILON && Utils.checkExchangeOperator(dataModel, r1, p1, r2, p2)) {
+                            Node u1 = r1.removeCustomerAtIndex(p1);  // u1 == y1
+                            Node u2 = r2.removeCustomerAtIndex(p2);  // u2 == y2
+                            r1.insertAtPosition(p1, u2);
+                            r2.insertAtPosition(p2, u1);
 
-                                assert Utils.isValidRoute(dataModel, r1);
-                                assert Utils.isValidRoute(dataModel, r2);
-                                localOptimal = false;
-                                continue whileLoop;
-                            }
+                            assert Utils.isValidRoute(dataModel, r1);
+                            assert Utils.isValidRoute(dataModel, r2);
+                            modifiedRoutes.add(r1);
+                            modifiedRoutes.add(r2);
+                            // Re-activate all customers in the modified routes
+                            r1.getDemandNodes().forEach(u -> dontLook[u.id] = false);
+                            r2.getDemandNodes().forEach(u -> dontLook[u.id] = false);
+                            queue.addFirst(r1);  // continue with r1
+                            activeRouteSet.add(r1);
+                            if (activeRouteSet.add(r2)) queue.addLast(r2);
+                            break scanLoop;
                         }
                     }
                 }
+                dontLook[y1.id] = true;  // no improving exchange for y1
             }
         }
+        return modifiedRoutes;
     }
 }
@@ -1,7 +1,5 @@
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.logging.Logger;
 
 /**
  * The algorithm is inspired by the greedy nearest neighbor algorithm for VRP.
@@ -13,6 +11,8 @@ import java.util.logging.Logger;
  *
  * If there is still no feasible customer, initialize a new vehicle (a new route).
  *
+ * The un-routed customers are kept in a CustomerGridIndex, so finding the next customer
+ * does not scan every un-routed customer.
  */
 public class Greedy implements ConstructionAlgorithm {
     DataModel dataModel;
@@ -27,7 +27,7 @@ public class Greedy implements ConstructionAlgorithm {
 
     public List<Route> run() {
         List<Route> solution = new ArrayList<>();
-        Set<Node> unRoutedCustomers = dataModel.getDemandNodes();
+        CustomerGridIndex unRoutedCustomers = new CustomerGridIndex(dataModel, dataModel.getDemandNodes());
         while (!unRoutedCustomers.isEmpty()) {
             Route route = new Route(dataModel);
             recursivelyAddCustomer(unRoutedCustomers, route);
@@ -43,7 +43,7 @@ public class Greedy implements ConstructionAlgorithm {
      * @param unRoutedCustomers
      * @param route
      */
-    void recursivelyAddCustomer(Set<Node> unRoutedCustomers, Route route) {
+    void recursivelyAddCustomer(CustomerGridIndex unRoutedCustomers, Route route) {
         Node u = findBestFeasibleCustomer(unRoutedCustomers, route);
         if (u == null) return;  // can no longer add customer to this route
         while (u != null) {
@@ -58,26 +58,11 @@ public class Greedy implements ConstructionAlgorithm {
         recursivelyAddCustomer(unRoutedCustomers, route);
     }
 
-    public Node findBestFeasibleCustomer(Set<Node> unRoutedCustomers, Route route) {
-        Node bestCustomer = null;
-        double earliestTime = 1e9;  // Earliest time the vehicle can continue the trip, initially set to infinity
-        for (Node u : unRoutedCustomers) {
-            if (route.checkCapacityConstraint(route.getLength() - 1, u.demand)) {
-                Node prevCustomer = route.get(route.getLength() - 1);
-                double arrivalTimeAtCustomer = route.getStartingServiceTimeAt(route.getLength() - 1)
-                        + prevCustomer.serviceTime + dataModel.dist(prevCustomer, u);
-                double startingServiceTime = Math.max(arrivalTimeAtCustomer, u.readyTime);
-                double endingServiceTime = startingServiceTime + u.serviceTime;
-                // Also need to check if the vehicle could return to depot in time
-                double arrivalTimeAtDepot = endingServiceTime + dataModel.distFromDepot(u);
-                if (arrivalTimeAtCustomer <= u.dueTime
-                        && arrivalTimeAtDepot <= dataModel.getDepot().dueTime
-                        && endingServiceTime < earliestTime) {
-                    earliestTime = arrivalTimeAtCustomer;
-                    bestCustomer = u;
-                }
-            }
-        }
-        return bestCustomer;
+    /**
+     * Find the customer with the earliest ending service time that can be appended to the current trip.
+     * @return the best customer, or null if no feasible customer exists
+     */
+    public Node findBestFeasibleCustomer(CustomerGridIndex unRoutedCustomers, Route route) {
+        return unRoutedCustomers.findEarliestFeasibleSuccessor(route);
     }
 }
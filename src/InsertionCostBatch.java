@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * Batch evaluation of the I1 insertion cost c1 (MTSolomonAlgorithm.getC1InsertionCost) of a customer
+ * at all positions of a route.
+ *
+ * The route is copied into primitive arrays (one per attribute), then the costs are computed in 3 passes:
+ *  1. Distances from the customer to all nodes of the route.
+ *  2. c11, push-forward time c12 and a first-pass feasibility check (capacity, time window of the customer and of
+ *     the next node) for all positions. This loop has no branch, so it can be vectorized by the JIT compiler.
+ *  3. Only for the positions passing the first check, the time windows of the following nodes (scalar).
+ * The arithmetic is the same as in the scalar code (same operations in the same order), so costs are identical.
+ *
+ * The snapshot must be refreshed (update()) after every modification of the route, getC1InsertionCosts(u)
+ * refreshes it if the version of the route changed.
+ */
+class InsertionCostBatch {
+    static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+
+    Route route;
+    DataModel dataModel;
+    Parameter parameter;
+    int length;
+    long version;  // version of the route in the snapshot
+    int[] loads;  // vehicle load of the trip at each position
+    double[] readyTimes, dueTimes, startingServiceTimes, departureTimes;  // departure = starting service + service time
+    double[] prevDistances;  // distance from the previous node at each position
+    // Buffers for the evaluation of a customer
+    double[] distances, pushForwards, costs;
+    boolean[] isCandidate;
+
+    InsertionCostBatch(Route route, DataModel dataModel, Parameter parameter) {
+        this.route = route;
+        this.dataModel = dataModel;
+        this.parameter = parameter;
+        update();
+    }
+
+    /**
+     * Refresh the snapshot of the route.
+     */
+    void update() {
+        length = route.getLength();
+        version = route.getVersion();
+        if (loads == null || loads.length < length) {
+            int capacity = 2 * length;
+            loads = new int[capacity];
+            readyTimes = new double[capacity];
+            dueTimes = new double[capacity];
+            startingServiceTimes = new double[capacity];
+            departureTimes = new double[capacity];
+            prevDistances = new double[capacity];
+            distances = new double[capacity];
+            pushForwards = new double[capacity];
+            costs = new double[capacity];
+            isCandidate = new boolean[capacity];
+        }
+        loads[0] = 0;
+        for (int t = 0; t < route.numTripStarts; t++) {
+            Arrays.fill(loads, route.getTripStart(t) + 1, route.getTripEnd(t) + 1, route.getTripLoad(t));
+        }
+        int prev = -1;
+        for (int p = 0; p < length; p++) {
+            int n = route.get(p).id;
+            readyTimes[p] = dataModel.getReadyTime(n);
+            dueTimes[p] = dataModel.getDueTime(n);
+            startingServiceTimes[p] = route.getStartingServiceTimeAt(p);
+            departureTimes[p] = startingServiceTimes[p] + dataModel.getServiceTime(n);
+            prevDistances[p] = p == 0 ? 0 : dataModel.dist(prev, n);
+            prev = n;
+        }
+    }
+
+    /**
+     * Compute the c1 cost of inserting u at all positions of the route, the snapshot is refreshed first if needed.
+     * @return costs by position, INFEASIBLE if the insertion is not feasible, overwritten by the next call
+     */
+    double[] getC1InsertionCosts(Node u) {
+        if (route.getVersion() != version) update();
+        getC1InsertionCosts(u, 1, length - 1, costs);
+        return costs;
+    }
+
+    /**
+     * Compute the c1 cost of inserting u at each position in [from, to], INFEASIBLE if the insertion is not feasible.
+     * @param costs output, indexed by position
+     */
+    void getC1InsertionCosts(Node u, int from, int to, double[] costs) {
+        for (int p = from - 1; p <= to; p++) distances[p] = dataModel.dist(route.get(p).id, u.id);
+
+        double readyTimeU = dataModel.getReadyTime(u.id), dueTimeU = dataModel.getDueTime(u.id),
+                serviceTimeU = dataModel.getServiceTime(u.id);
+        int maxLoad = dataModel.getVehicleCapacity() - dataModel.getDemand(u.id);
+        double alpha1 = parameter.alpha1, alpha2 = parameter.alpha2;
+        for (int p = from; p <= to; p++) {
+            double arrivalTimeAtU = departureTimes[p - 1] + distances[p - 1];
+            double startingServiceTimeAtU = Math.max(arrivalTimeAtU, readyTimeU);
+            double newArrivalTime = startingServiceTimeAtU + serviceTimeU + distances[p];
+            double pushForward = Math.max(newArrivalTime, readyTimes[p]) - startingServiceTimes[p];
+            double c11 = distances[p - 1] + distances[p] - prevDistances[p];
+            pushForwards[p] = pushForward;
+            costs[p] = alpha1 * c11 + alpha2 * pushForward;
+            isCandidate[p] = loads[p] <= maxLoad & arrivalTimeAtU <= dueTimeU
+                    & startingServiceTimes[p] + pushForward <= dueTimes[p];
+        }
+
+        for (int p = from; p <= to; p++) {
+            if (!isCandidate[p] || !route.checkPushForwardTimeFromPosition(pushForwards[p], p)) costs[p] = INFEASIBLE;
+        }
+    }
+}
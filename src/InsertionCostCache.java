@@ -0,0 +1,238 @@
+import java.util.*;
+
+/**
+ * Cache of the I1 insertion costs used by MTSolomonAlgorithm when constructing a single route.
+ *
+ * For every un-routed customer, we store the c1 cost of inserting it at each position of the route,
+ * together with its best position and c2 value. The best customer is taken from a priority queue ordered by c2.
+ *
+ * After inserting a customer at position p, only positions whose neighbours had their arrival time changed
+ * (from p until the push-forward is absorbed) are re-evaluated, other costs are shifted.
+ * Inserting a customer never makes another insertion feasible, so cached positions are only validated lazily:
+ * the position of the best candidate is re-checked before it is returned, and dropped if it became infeasible
+ * (e.g. because of the push-forward or the new vehicle load of the trip).
+ *
+ * The best position of a customer is only searched again over all positions if it was re-evaluated, otherwise
+ * its cost is unchanged and it is compared with the re-evaluated positions only.
+ * The queue is updated lazily: a customer whose c2 value changed is pushed again, and its previous entries become
+ * stale (older stamp), they are dropped when they reach the head of the queue.
+ */
+class InsertionCostCache {
+    static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+
+    Route route;
+    DataModel dataModel;
+    Parameter parameter;
+    List<Node> orderedCustomers;
+    boolean[] isRouted;  // by index in orderedCustomers
+    int[] orderIndexById;  // index in orderedCustomers by customer id
+    double[][] c1Costs;  // by index in orderedCustomers, then by insertion position in the route
+    int[] bestPositions;
+    double[] bestC2Values;
+    PriorityQueue<Entry> queue;  // ordered by c2 (descending) then by index in orderedCustomers (ascending)
+    int[] stamps;  // stamp of the current entry of each customer in the queue
+    InsertionCostBatch batch;  // null if costs are evaluated one position at a time
+
+    /**
+     * @param route the route under construction
+     * @param orderedCustomers all customers to be routed (same ordering as the un-routed list in MT-Solomon)
+     * @param isRouted whether each customer in orderedCustomers is already routed, updated by this cache
+     */
+    InsertionCostCache(Route route, List<Node> orderedCustomers, boolean[] isRouted, DataModel dataModel,
+                       Parameter parameter, boolean batchEvaluation) {
+        this.route = route;
+        this.orderedCustomers = orderedCustomers;
+        this.isRouted = isRouted;
+        this.dataModel = dataModel;
+        this.parameter = parameter;
+        if (batchEvaluation) batch = new InsertionCostBatch(route, dataModel, parameter);
+
+        int n = orderedCustomers.size();
+        orderIndexById = new int[orderedCustomers.stream().mapToInt(u -> u.id).max().orElse(0) + 1];
+        for (int k = 0; k < n; k++) orderIndexById[orderedCustomers.get(k).id] = k;
+        c1Costs = new double[n][];
+        bestPositions = new int[n];
+        bestC2Values = new double[n];
+        stamps = new int[n];
+        queue = new PriorityQueue<>(Math.max(1, n), (a, b) -> a.c2Value != b.c2Value
+                ? Double.compare(b.c2Value, a.c2Value) : Integer.compare(a.k, b.k));
+        rebuild();
+    }
+
+    /**
+     * Re-evaluate all positions for all un-routed customers.
+     */
+    void rebuild() {
+        int length = route.getLength();
+        if (batch != null) batch.update();
+        for (int k = 0; k < orderedCustomers.size(); k++) {
+            if (isRouted[k]) continue;
+            c1Costs[k] = new double[length + 1];
+            getC1InsertionCosts(k, 1, length - 1);
+            updateBestPosition(k);
+        }
+        rebuildQueue();
+    }
+
+    void rebuildQueue() {
+        List<Entry> entries = new ArrayList<>();
+        for (int k = 0; k < orderedCustomers.size(); k++) {
+            stamps[k]++;
+            if (!isRouted[k] && bestPositions[k] != -1) entries.add(new Entry(k, bestC2Values[k], stamps[k]));
+        }
+        queue.clear();
+        queue.addAll(entries);
+    }
+
+    /**
+     * Replace the entry of customer k in the queue after its c2 value changed (none if it has no feasible position).
+     */
+    void requeue(int k) {
+        stamps[k]++;
+        if (bestPositions[k] != -1) queue.add(new Entry(k, bestC2Values[k], stamps[k]));
+    }
+
+    /**
+     * Evaluate the c1 costs of customer k at positions [from, to] of the route.
+     */
+    void getC1InsertionCosts(int k, int from, int to) {
+        if (batch != null) {
+            batch.getC1InsertionCosts(orderedCustomers.get(k), from, to, c1Costs[k]);
+            return;
+        }
+        for (int p = from; p <= to; p++) {
+            Double cost = MTSolomonAlgorithm.getC1InsertionCost(route, orderedCustomers.get(k), p, dataModel, parameter);
+            c1Costs[k][p] = cost == null ? INFEASIBLE : cost;
+        }
+    }
+
+    /**
+     * Find the position with minimum c1 cost (first position in case of tie), compute its c2 value.
+     */
+    void updateBestPosition(int k) {
+        double[] costs = c1Costs[k];
+        int bestPosition = -1;
+        for (int p = 1; p < route.getLength(); p++) {
+            if (costs[p] != INFEASIBLE && (bestPosition == -1 || costs[p] < costs[bestPosition])) bestPosition = p;
+        }
+        bestPositions[k] = bestPosition;
+        if (bestPosition != -1) {
+            double d0u = dataModel.distFromDepot(orderedCustomers.get(k));
+            bestC2Values[k] = parameter.lambda * d0u - costs[bestPosition];
+        }
+    }
+
+    /**
+     * Update the best position of customer k after an insertion at p: costs at positions [p, lastChangedPosition]
+     * were re-evaluated, the costs after lastChangedPosition were shifted by 1.
+     * If the cached best position was not re-evaluated, its cost is unchanged and lower than all other costs that
+     * were not re-evaluated (and the first one in case of tie), so only the re-evaluated positions are compared to it.
+     * @return whether the c2 value (or feasibility) of the customer changed
+     */
+    boolean updateBestPositionAfterInsertion(int k, int p, int lastChangedPosition) {
+        int oldBestPosition = bestPositions[k];
+        double oldC2Value = bestC2Values[k];
+        if (oldBestPosition >= p && oldBestPosition < lastChangedPosition) {  // re-evaluated
+            updateBestPosition(k);
+        } else {
+            double[] costs = c1Costs[k];
+            int bestPosition = oldBestPosition >= lastChangedPosition ? oldBestPosition + 1 : oldBestPosition;
+            boolean changed = false;
+            for (int q = p; q <= lastChangedPosition; q++) {
+                if (costs[q] != INFEASIBLE && (bestPosition == -1 || costs[q] < costs[bestPosition]
+                        || costs[q] == costs[bestPosition] && q < bestPosition)) {
+                    bestPosition = q;
+                    changed = true;
+                }
+            }
+            bestPositions[k] = bestPosition;
+            if (!changed) return false;
+            double d0u = dataModel.distFromDepot(orderedCustomers.get(k));
+            bestC2Values[k] = parameter.lambda * d0u - costs[bestPosition];
+        }
+        return bestPositions[k] == -1 ? oldBestPosition != -1
+                : oldBestPosition == -1 || bestC2Values[k] != oldC2Value;
+    }
+
+    /**
+     * Get the best customer to be inserted in the route, and the position to be inserted
+     * based on evaluation function c2
+     *
+     * c2(i(u*), u*, j(u*)) = max[c2(i(u), u, j(u))], u un-routed and feasible
+     * c2 = lambda * d0u - c1(i, u, j)
+     *
+     * @return the best customer and its position, or null if there is no feasible customer
+     */
+    CustomerPosition getBestCustomerAndPosition() {
+        while (!queue.isEmpty()) {
+            Entry entry = queue.peek();
+            int k = entry.k;
+            if (isRouted[k] || entry.stamp != stamps[k]) {  // stale
+                queue.poll();
+                continue;
+            }
+            Node u = orderedCustomers.get(k);
+            if (route.canInsertCustomerAt(bestPositions[k], u)) return new CustomerPosition(u, bestPositions[k]);
+            // The cached position is no longer feasible, move the customer to its next best position
+            queue.poll();
+            c1Costs[k][bestPositions[k]] = INFEASIBLE;
+            updateBestPosition(k);
+            requeue(k);
+        }
+        return null;
+    }
+
+    /**
+     * Insert customer u at position p of the route and update the cached insertion costs.
+     */
+    void insert(Node u, int p) {
+        int oldLength = route.getLength();
+        double[] oldArrivalTimes = new double[oldLength];
+        for (int i = 0; i < oldLength; i++) oldArrivalTimes[i] = route.getArrivalTimeAt(i);
+
+        route.insertAtPosition(p, u);
+        isRouted[orderIndexById[u.id]] = true;
+
+        // First index after p (in the new route) whose arrival time is unchanged, all following ones are unchanged
+        int unchangedIdx = p + 1;
+        while (unchangedIdx <= oldLength && route.getArrivalTimeAt(unchangedIdx) != oldArrivalTimes[unchangedIdx - 1]) {
+            unchangedIdx++;
+        }
+        int lastChangedPosition = Math.min(unchangedIdx, oldLength);
+        if (batch != null) batch.update();
+
+        for (int k = 0; k < orderedCustomers.size(); k++) {
+            if (isRouted[k]) continue;
+            double[] costs = c1Costs[k];
+            if (costs.length < oldLength + 2) costs = c1Costs[k] = Arrays.copyOf(costs, 2 * oldLength + 2);
+            // Positions after the changed part of the route are shifted by 1, positions before p are unchanged
+            if (unchangedIdx < oldLength) {
+                System.arraycopy(costs, unchangedIdx, costs, unchangedIdx + 1, oldLength - unchangedIdx);
+            }
+            getC1InsertionCosts(k, p, lastChangedPosition);
+            if (updateBestPositionAfterInsertion(k, p, lastChangedPosition)) requeue(k);
+        }
+        // Bound the # stale entries
+        if (queue.size() > 2 * orderedCustomers.size()) rebuildQueue();
+    }
+
+    /**
+     * Add a dummy depot to the end of the route to start a new trip.
+     */
+    void addDummyDepot() {
+        route.addDummyDepot();
+        rebuild();
+    }
+
+    static class Entry {
+        final int k;  // index in orderedCustomers
+        final double c2Value;
+        final int stamp;
+
+        Entry(int k, double c2Value, int stamp) {
+            this.k = k;
+            this.c2Value = c2Value;
+            this.stamp = stamp;
+        }
+    }
+}
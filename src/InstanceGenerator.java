@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Seeded generator of synthetic test cases in the Solomon text format (the format read by DataModel),
+ * for sizes beyond the bundled test sets.
+ *
+ * Test sets follow the classes of Solomon / Gehring & Homberger:
+ *  - Geography: C (customers in clusters), R (uniformly random), RC (half clustered, half random).
+ *  - Time windows: type 1 (short horizon, narrow windows, capacity 200),
+ *    type 2 (long horizon, wide windows, large capacity), see TYPE_1 and TYPE_2.
+ * The depot is at the center of a square grid whose side grows with sqrt(# customers) (constant density,
+ * 500 x 500 for 1000 customers as in Gehring & Homberger). Every customer can be served by a dedicated trip:
+ * it can be reached before its due time, and the vehicle can return to the depot before the end of the horizon
+ * (on small grids, the horizon is extended so that this also holds for a customer at a corner).
+ *
+ * Usage: java InstanceGenerator <# customers> [# test cases per set] [seed]
+ * Test cases are written to input/<# customers>/<set>/<set>_<size tag>_<i>.TXT (e.g. input/5000/R1/R1_50_1.TXT).
+ */
+public class InstanceGenerator {
+    static final String[] TEST_SETS = {"C1", "C2", "R1", "R2", "RC1", "RC2"};
+    static final double SIDE_1000 = 500;  // side of the grid for 1000 customers
+    static final double CLUSTER_STD_DEV = 15;  // standard deviation of the distance to the center of a cluster
+    static final int CUSTOMERS_PER_CLUSTER = 100;
+
+    // Time window classes: horizon (in multiples of the side of the grid) and width of the windows (fraction of horizon)
+    static final TimeWindowClass TYPE_1 = new TimeWindowClass(3.6, 3.6, 0.015, 0.05, 200, 200);
+    static final TimeWindowClass TYPE_2 = new TimeWindowClass(7.8, 15, 0.05, 0.25, 700, 1000);
+
+    final Random random;
+    final int numCustomers;
+
+    InstanceGenerator(int numCustomers, long seed) {
+        this.numCustomers = numCustomers;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int numCustomers = Integer.parseInt(args[0]);
+        if (numCustomers < 1) throw new IllegalArgumentException("# customers must be positive: " + numCustomers);
+        int numTestCases = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        InstanceGenerator generator = new InstanceGenerator(numCustomers, seed);
+        for (String testSet : TEST_SETS) {
+            File directory = new File(System.getProperty("user.dir") + "/input/" + numCustomers + "/" + testSet);
+            if (!directory.exists() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+            for (int i = 1; i <= numTestCases; i++) {
+                String name = getTestCaseName(testSet, numCustomers, i);
+                generator.write(new File(directory, name + ".TXT"), testSet, name);
+            }
+        }
+    }
+
+    /**
+     * Name of a test case, as in Gehring & Homberger: the size tag is the # customers in hundreds.
+     */
+    static String getTestCaseName(String testSet, int numCustomers, int i) {
+        int sizeTag = numCustomers % 100 == 0 ? numCustomers / 100 : numCustomers;
+        return testSet + "_" + sizeTag + "_" + i;
+    }
+
+    /**
+     * Generate a test case of the given set and write it to file.
+     */
+    void write(File file, String testSet, String name) throws IOException {
+        boolean clustered = testSet.startsWith("C"), uniform = testSet.startsWith("R") && !testSet.startsWith("RC");
+        boolean type1 = testSet.endsWith("1");
+        TimeWindowClass windowClass = type1 ? TYPE_1 : TYPE_2;
+        double side = Math.round(SIDE_1000 * Math.sqrt(numCustomers / 1000.0));
+        int center = (int) (side / 2);
+        int serviceTime = clustered ? 90 : 10;
+        // Small grids: the horizon must still allow a dedicated trip to a corner of the grid
+        int maxDistFromDepot = (int) Math.ceil(Math.sqrt(2) * Math.max(center, side - center));
+        int horizon = Math.max((int) Math.round((clustered ? windowClass.horizonC : windowClass.horizonR) * side),
+                2 * maxDistFromDepot + serviceTime);
+        int capacity = clustered ? windowClass.capacityC : windowClass.capacityR;
+
+        List<int[]> clusterCenters = new ArrayList<>();
+        int numClusters = Math.max(1, numCustomers / CUSTOMERS_PER_CLUSTER);
+        for (int k = 0; k < numClusters; k++) clusterCenters.add(new int[]{random.nextInt((int) side), random.nextInt((int) side)});
+
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println(name.toLowerCase());
+            writer.println();
+            writer.println("VEHICLE");
+            writer.println("NUMBER     CAPACITY");
+            writer.printf(" %d          %d%n", Math.max(1, numCustomers / 4), capacity);
+            writer.println();
+            writer.println("CUSTOMER");
+            writer.println("CUST NO.  XCOORD.    YCOORD.    DEMAND   READY TIME  DUE DATE   SERVICE TIME");
+            writer.println(" ");
+            writer.printf("%5d %7d %10d %10d %10d %10d %10d%n", 0, center, center, 0, 0, horizon, 0);
+            for (int i = 1; i <= numCustomers; i++) {
+                // RC: first half clustered, second half random
+                boolean inCluster = clustered || (!uniform && i <= numCustomers / 2);
+                int x, y;
+                if (inCluster) {
+                    int[] clusterCenter = clusterCenters.get(random.nextInt(numClusters));
+                    x = clamp((int) Math.round(clusterCenter[0] + random.nextGaussian() * CLUSTER_STD_DEV), side);
+                    y = clamp((int) Math.round(clusterCenter[1] + random.nextGaussian() * CLUSTER_STD_DEV), side);
+                } else {
+                    x = random.nextInt((int) side + 1);
+                    y = random.nextInt((int) side + 1);
+                }
+                int demand = clustered ? 10 * (1 + random.nextInt(4)) : 1 + random.nextInt(40);
+
+                // Center of the window between the earliest arrival and the latest service start (return to the depot on time)
+                int distFromDepot = (int) Math.ceil(Math.sqrt(Math.pow(x - center, 2) + Math.pow(y - center, 2)));
+                int latestStart = horizon - distFromDepot - serviceTime;
+                int windowCenter = distFromDepot + random.nextInt(latestStart - distFromDepot + 1);
+                double width = horizon * (windowClass.minWidth + random.nextDouble() * (windowClass.maxWidth - windowClass.minWidth));
+                int readyTime = Math.max(0, (int) (windowCenter - width / 2));
+                int dueTime = Math.min(latestStart, (int) (windowCenter + width / 2));
+                writer.printf("%5d %7d %10d %10d %10d %10d %10d%n", i, x, y, demand, readyTime, dueTime, serviceTime);
+            }
+        }
+    }
+
+    static int clamp(int coordinate, double side) {
+        return Math.max(0, Math.min((int) side, coordinate));
+    }
+
+    static class TimeWindowClass {
+        final double horizonC, horizonR;  // horizon of C sets and R/RC sets, in multiples of the side of the grid
+        final double minWidth, maxWidth;  // width of the time windows, in fraction of the horizon
+        final int capacityC, capacityR;  // vehicle capacity of C sets and R/RC sets
+
+        TimeWindowClass(double horizonC, double horizonR, double minWidth, double maxWidth, int capacityC, int capacityR) {
+            this.horizonC = horizonC;
+            this.horizonR = horizonR;
+            this.minWidth = minWidth;
+            this.maxWidth = maxWidth;
+            this.capacityC = capacityC;
+            this.capacityR = capacityR;
+        }
+    }
+}
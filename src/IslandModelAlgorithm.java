@@ -0,0 +1,103 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Island-model parallel version of the solution algorithm (SolutionAlgorithm).
+ * Each island is an ILS (SolutionAlgorithm.runWithNumExchanges) running in its own thread
+ * with its own seed and perturbation strength (# exchanges in weak-perturbation), from the same initial solution.
+ *
+ * Every weakPerturbationThreshold iterations, each island (see SolutionAlgorithm.Migration):
+ *  1. Sends its current local optimum to the mailbox of the next island (ring).
+ *  2. Adopts the solution in its own mailbox if it has fewer vehicles.
+ *  3. If it is stagnating (no reduction of # vehicles for STAGNATION_THRESHOLD iterations),
+ *     also adopts the global best (SharedIncumbent, to which every island publishes its reductions)
+ *     if it has fewer vehicles.
+ * Mailboxes and the global best are lock-free, and only hold deep copies of the solutions.
+ *
+ * The distance improvement phase is then done on the local optima of all islands, as in SolutionAlgorithm.
+ */
+public class IslandModelAlgorithm implements ConstructionAlgorithm {
+    static final int STAGNATION_THRESHOLD = 1000;
+    static final Logger logger = Logger.getLogger(IslandModelAlgorithm.class.getName());
+    int numIslands;
+    SolutionAlgorithm[] islands;
+    List<AtomicReference<List<Route>>> mailboxes;
+    SharedIncumbent globalBest = new SharedIncumbent();
+    long timeToBestNumVehicles;  // time for the first island to reach the best # vehicles found
+
+    public IslandModelAlgorithm() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public IslandModelAlgorithm(int numIslands) {
+        this.numIslands = numIslands;
+    }
+
+    @Override
+    public List<Route> run(DataModel dataModel) {
+        long startTime = System.nanoTime();
+        islands = new SolutionAlgorithm[numIslands];
+        mailboxes = new ArrayList<>(numIslands);
+        for (int i = 0; i < numIslands; i++) {
+            islands[i] = new SolutionAlgorithm(i);
+            islands[i].dataModel = dataModel;
+            islands[i].startTime = startTime;
+            islands[i].parallelStrongPerturbation = false;  // cores are already used by the islands
+            islands[i].incumbent = globalBest;
+            mailboxes.add(new AtomicReference<>());
+            int islandIdx = i;
+            islands[i].migration = (solution, numIterationsWithoutImprovement)
+                    -> migrate(islandIdx, solution, numIterationsWithoutImprovement);
+        }
+        List<Route> initialSolution = islands[0].getInitialSolution(dataModel);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numIslands);
+        List<Future<List<List<Route>>>> futures = new ArrayList<>();
+        for (int i = 0; i < numIslands; i++) {
+            int islandIdx = i;
+            futures.add(executor.submit(() -> islands[islandIdx]
+                    .runWithNumExchanges(dataModel, initialSolution, getNumExchanges(islandIdx))));
+        }
+        List<List<Route>> localOptima = new ArrayList<>();
+        try {
+            for (Future<List<List<Route>>> future : futures) localOptima.addAll(future.get());
+        } catch (InterruptedException | ExecutionException e) {
+            // An island failed (or this thread is interrupted): interrupt the other islands,
+            // each one stops at its next strong-perturbation (see SolutionAlgorithm.runWithNumExchanges)
+            futures.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < numIslands; i++) logger.info("Island " + i + ": " + islands[i].getSearchStats());
+        int bestNumVehicles = Arrays.stream(islands).mapToInt(island -> island.bestNumVehicles).min().getAsInt();
+        timeToBestNumVehicles = Arrays.stream(islands).filter(island -> island.bestNumVehicles == bestNumVehicles)
+                .mapToLong(island -> island.timeToBestNumVehicles).min().getAsLong();
+        return islands[0].getBestSolution(localOptima);
+    }
+
+    /**
+     * Perturbation strength of each island: cycle through SolutionAlgorithm.numExchanges,
+     * scaled up by 1 for each full cycle (e.g. 10, 100, 20, 200, 30, 300, ...).
+     */
+    static int getNumExchanges(int islandIdx) {
+        List<Integer> numExchanges = SolutionAlgorithm.numExchanges;
+        return numExchanges.get(islandIdx % numExchanges.size()) * (1 + islandIdx / numExchanges.size());
+    }
+
+    List<Route> migrate(int islandIdx, List<Route> solution, int numIterationsWithoutImprovement) {
+        mailboxes.get((islandIdx + 1) % numIslands).set(Utils.deepCopySolution(solution));
+
+        List<Route> immigrant = mailboxes.get(islandIdx).getAndSet(null);
+        if (immigrant != null && immigrant.size() < solution.size()) return Utils.deepCopySolution(immigrant);
+        if (numIterationsWithoutImprovement >= STAGNATION_THRESHOLD) {
+            List<Route> best = globalBest.getSolution();
+            if (best.size() < solution.size()) return Utils.deepCopySolution(best);
+        }
+        return null;
+    }
+}
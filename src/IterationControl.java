@@ -0,0 +1,123 @@
+/**
+ * Iteration budgets and perturbation strength of 1 run of the ILS (SolutionAlgorithm.runWithNumExchanges).
+ *
+ * Fixed mode: the constants of SolutionAlgorithm, tuned on the 100-customer test sets.
+ * Adaptive mode:
+ *  - Budgets scale with the # customers n: iterationThreshold * sqrt(100 / n) iterations without reduction of
+ *    # vehicles (an iteration costs O(n^2)), numAttemptExchangeThreshold * n / 100 attempted exchanges.
+ *    Both are the fixed constants for n = 100.
+ *  - Perturbation strength: a weak-perturbation succeeds if the next local optimum reduces # vehicles
+ *    or improves the best distance (with the current # vehicles). Every SUCCESS_WINDOW local optima,
+ *    the # exchanges is increased if the success rate is below TARGET_SUCCESS_RATE (diversify),
+ *    decreased otherwise (intensify), within [1/4, 4] times the initial # exchanges.
+ *  - Stagnation: the run stops if neither # vehicles nor the best distance improved for
+ *    STAGNATION_RATIO of the iteration budget, or if the relative improvement of the best distance per second,
+ *    measured over the last RATE_WINDOW_ROUNDS rounds of weak-perturbations, falls below MIN_IMPROVEMENT_RATE.
+ *
+ * The adaptive mode is experimental and off by default (SolutionAlgorithm.ADAPTIVE_ITERATION_CONTROL): on r101, r105,
+ * rc101, r201 and rc201 it kept the # vehicles and was 1.4-4x faster, but the distance was 0.2-2% worse.
+ * It only controls the ILS: the distance improvement phase (SolutionAlgorithm.optimizeDistance) always runs until
+ * its local optimum.
+ */
+public class IterationControl {
+    static final int BASE_NUM_CUSTOMERS = 100;  // the fixed constants are tuned for this size
+    static final int SUCCESS_WINDOW = 50;
+    static final double TARGET_SUCCESS_RATE = 0.2;
+    static final double STRENGTH_STEP = 1.25, MAX_STRENGTH_RATIO = 4;
+    static final double STAGNATION_RATIO = 0.5;
+    static final int RATE_WINDOW_ROUNDS = 10;
+    static final double MIN_IMPROVEMENT_RATE = 1e-4;  // relative improvement of the best distance per second
+
+    final boolean adaptive;
+    final int iterationThreshold, weakPerturbationThreshold, numAttemptExchangeThreshold;
+    final int minNumExchanges, maxNumExchanges;
+    double numExchanges;
+
+    // Convergence of the current # vehicles
+    int numVehicles = Integer.MAX_VALUE;
+    double bestDistance = Double.MAX_VALUE;
+    int numIterationsWithoutImprovement;
+    int numSamples, numSuccesses;
+    // Best distance and time at the end of the last rounds of weak-perturbations (circular)
+    final double[] roundBestDistances = new double[RATE_WINDOW_ROUNDS];
+    final long[] roundTimes = new long[RATE_WINDOW_ROUNDS];
+    int numRounds;
+
+    private IterationControl(boolean adaptive, int numCustomers, int numExchanges, int iterationThreshold) {
+        this.adaptive = adaptive;
+        this.numExchanges = numExchanges;
+        if (adaptive) {
+            this.iterationThreshold = (int) Math.round(iterationThreshold
+                    * Math.sqrt(1.0 * BASE_NUM_CUSTOMERS / numCustomers));
+            numAttemptExchangeThreshold = (int) Math.max(1L, (long) SolutionAlgorithm.numAttemptExchangeThreshold
+                    * numCustomers / BASE_NUM_CUSTOMERS);
+        } else {
+            this.iterationThreshold = iterationThreshold;
+            numAttemptExchangeThreshold = SolutionAlgorithm.numAttemptExchangeThreshold;
+        }
+        weakPerturbationThreshold = SolutionAlgorithm.weakPerturbationThreshold;
+        minNumExchanges = Math.max(1, (int) (numExchanges / MAX_STRENGTH_RATIO));
+        maxNumExchanges = (int) (numExchanges * MAX_STRENGTH_RATIO);
+    }
+
+    static IterationControl fixed(int numExchanges) {
+        return fixed(numExchanges, SolutionAlgorithm.iterationThreshold);
+    }
+
+    /**
+     * Fixed mode with another iteration budget, e.g. to benchmark the ILS (ScalingBenchmark).
+     */
+    static IterationControl fixed(int numExchanges, int iterationThreshold) {
+        return new IterationControl(false, BASE_NUM_CUSTOMERS, numExchanges, iterationThreshold);
+    }
+
+    static IterationControl adaptive(DataModel dataModel, int numExchanges) {
+        return new IterationControl(true, dataModel.getNumNodes() - 1, numExchanges, SolutionAlgorithm.iterationThreshold);
+    }
+
+    int getNumExchanges() {
+        return (int) Math.round(numExchanges);
+    }
+
+    /**
+     * Record the local optimum of an iteration (adaptive mode only).
+     */
+    void recordLocalOptimum(int numVehicles, double distance) {
+        if (!adaptive) return;
+        boolean success = numVehicles < this.numVehicles || (numVehicles == this.numVehicles && distance < bestDistance);
+        if (numVehicles < this.numVehicles) {  // restart the convergence of the new # vehicles
+            this.numVehicles = numVehicles;
+            numRounds = 0;
+        }
+        if (success) {
+            bestDistance = distance;
+            numIterationsWithoutImprovement = 0;
+            numSuccesses++;
+        } else {
+            numIterationsWithoutImprovement++;
+        }
+        if (++numSamples == SUCCESS_WINDOW) {
+            numExchanges = 1.0 * numSuccesses / numSamples < TARGET_SUCCESS_RATE
+                    ? Math.min(maxNumExchanges, numExchanges * STRENGTH_STEP)
+                    : Math.max(minNumExchanges, numExchanges / STRENGTH_STEP);
+            numSamples = numSuccesses = 0;
+        }
+    }
+
+    /**
+     * Called at the end of each round of weak-perturbations.
+     * @return true if the run should stop (adaptive mode only)
+     */
+    boolean isStagnating() {
+        if (!adaptive) return false;
+        if (numIterationsWithoutImprovement >= STAGNATION_RATIO * iterationThreshold) return true;
+        int i = numRounds % RATE_WINDOW_ROUNDS;
+        double oldBestDistance = roundBestDistances[i];
+        long oldTime = roundTimes[i], time = System.nanoTime();
+        roundBestDistances[i] = bestDistance;
+        roundTimes[i] = time;
+        if (numRounds++ < RATE_WINDOW_ROUNDS) return false;
+        double improvementRate = (oldBestDistance - bestDistance) / oldBestDistance / ((time - oldTime) / 1e9);
+        return improvementRate < MIN_IMPROVEMENT_RATE;
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Check that a large synthetic test case (InstanceGenerator) is solved within a small heap: the distances are then
+ * stored off-heap (MappedDistanceStore) or not at all (MatrixFreeDistanceStore), see DistanceStore.
+ * The test case is solved by Greedy (the construction algorithm with the smallest footprint), then:
+ *  - the distance store must not be a heap matrix,
+ *  - SAMPLE_SIZE random distances of the store must equal the distances computed from the coordinates,
+ *  - the solution must be valid.
+ * The heap limit is the one of the JVM, e.g. 10000 customers (heap matrix of 800 MB) with -Xmx128m.
+ *
+ * Usage: java -Xmx128m LargeInstanceCheck [# customers] [test set]
+ * Exit code 1 if a check fails (an OutOfMemoryError fails the run too).
+ */
+public class LargeInstanceCheck {
+    static final int DEFAULT_NUM_CUSTOMERS = 10000;
+    static final int SAMPLE_SIZE = 100000;
+    static final long SEED = 0;
+    static final Logger logger = Logger.getLogger(LargeInstanceCheck.class.getName());
+
+    public static void main(String[] args) throws IOException {
+        int numCustomers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUM_CUSTOMERS;
+        String testSet = args.length > 1 ? args[1] : "R1";
+        File file = File.createTempFile("large-" + testSet + "-" + numCustomers, ".TXT");
+        file.deleteOnExit();
+        new InstanceGenerator(numCustomers, SEED).write(file, testSet,
+                InstanceGenerator.getTestCaseName(testSet, numCustomers, 1));
+
+        long start = System.nanoTime();
+        DataModel dataModel = new DataModel(file.getPath(), numCustomers);
+        List<Route> solution = new Greedy().run(dataModel);
+        double runtime = (System.nanoTime() - start) / 1e9;
+        if (!file.delete()) logger.warning("Cannot delete " + file);
+
+        boolean passed = true;
+        DistanceStore distanceStore = dataModel.getDistanceStore();
+        if (distanceStore instanceof HeapDistanceStore) {
+            logger.severe("The distances of " + numCustomers + " customers are stored on the heap");
+            passed = false;
+        }
+        Random random = new Random(SEED);
+        for (int k = 0; k < SAMPLE_SIZE; k++) {
+            Node u = dataModel.getNode(random.nextInt(dataModel.getNumNodes()));
+            Node v = dataModel.getNode(random.nextInt(dataModel.getNumNodes()));
+            if (distanceStore.get(u.id, v.id) != DistanceStore.getDistance(u, v)) {
+                logger.severe("Wrong distance between " + u.id + " and " + v.id);
+                passed = false;
+                break;
+            }
+        }
+        if (!Utils.isValidSolution(dataModel, solution)) passed = false;
+
+        Runtime jvm = Runtime.getRuntime();
+        logger.info(String.format("%d customers, %s: %d vehicles, %.2fs, heap used %.0f MB of %.0f MB",
+                numCustomers, distanceStore.getClass().getSimpleName(), solution.size(), runtime,
+                (jvm.totalMemory() - jvm.freeMemory()) / 1e6, jvm.maxMemory() / 1e6));
+        if (!passed) System.exit(1);
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.*;
+
+/**
+ * Alternative storage of the routes of a solution as doubly linked lists in int arrays, for the operators that
+ * move segments (Or-opt) or swap route tails (2-opt*): a move is O(1) pointer updates instead of rebuilding
+ * the routed path (O(n)) and calling Route.initializeVariables (O(n)).
+ *
+ * Nodes are identified by slots: a customer's slot is its id, each occurrence of the depot gets its own slot
+ * (>= # nodes), since the depot appears once per trip. All routes share the slot space, so a tail can move
+ * from a route to another. Each route r is delimited by its first and last depot slots (head[r], tail[r]).
+ *
+ * Per slot, the schedule (arrival time, load of the trip up to the slot) is kept up to date:
+ * after a move, it is recomputed only from the first modified position, and stops as soon as the schedule of
+ * the unmodified part of the route is unchanged (same starting service time and trip load).
+ * Feasibility checks of a move walk the new sequence the same way, without modifying the lists.
+ * The order labels (position of a slot in its route) and the route of each slot are only needed to compare
+ * positions, they are recomputed lazily after a move.
+ */
+public class LinkedRoutes {
+    final DataModel dataModel;
+    final Node depot;
+    final int capacity;
+    final Node[] nodes;  // node of each slot
+    final int[] ids;  // node id of each slot
+    final int[] next, prev;
+    final double[] arrivalTimes;
+    final int[] loads;  // load of the trip up to (including) the slot, 0 at a depot
+    final int[] head, tail;
+    final int numRoutes;
+    // Lazily computed order labels
+    final int[] labels, routeOf, numDemandNodes;
+    final boolean[] isLabeled, isModified;
+
+    LinkedRoutes(DataModel dataModel, List<Route> routes) {
+        this.dataModel = dataModel;
+        depot = dataModel.getDepot();
+        capacity = dataModel.getVehicleCapacity();
+        numRoutes = routes.size();
+        int numSlots = dataModel.getNumNodes();
+        for (Route route : routes) numSlots += route.getLength() - route.getNumDemandNodes();
+        nodes = new Node[numSlots];
+        ids = new int[numSlots];
+        next = new int[numSlots];
+        prev = new int[numSlots];
+        arrivalTimes = new double[numSlots];
+        loads = new int[numSlots];
+        labels = new int[numSlots];
+        routeOf = new int[numSlots];
+        head = new int[numRoutes];
+        tail = new int[numRoutes];
+        numDemandNodes = new int[numRoutes];
+        isLabeled = new boolean[numRoutes];
+        isModified = new boolean[numRoutes];
+
+        int depotSlot = dataModel.getNumNodes();
+        for (int r = 0; r < numRoutes; r++) {
+            Route route = routes.get(r);
+            int prevSlot = -1, load = 0;
+            for (int p = 0; p < route.getLength(); p++) {
+                Node u = route.get(p);
+                int slot = u == depot ? depotSlot++ : u.id;
+                nodes[slot] = u;
+                ids[slot] = u.id;
+                arrivalTimes[slot] = route.getArrivalTimeAt(p);
+                load = u == depot ? 0 : load + u.demand;
+                loads[slot] = load;
+                if (prevSlot == -1) head[r] = slot;
+                else next[prevSlot] = slot;
+                prev[slot] = prevSlot;
+                prevSlot = slot;
+            }
+            next[prevSlot] = -1;
+            tail[r] = prevSlot;
+        }
+    }
+
+    /**
+     * Write the modified routes back (routed path, then Route.initializeVariables).
+     */
+    void writeBack(List<Route> routes) {
+        for (int r = 0; r < numRoutes; r++) {
+            if (!isModified[r]) continue;
+            Route route = routes.get(r);
+            route.routedPath = getPath(r);
+            route.initializeVariables();
+        }
+    }
+
+    List<Node> getPath(int r) {
+        List<Node> path = new ArrayList<>();
+        for (int slot = head[r]; slot != -1; slot = next[slot]) path.add(nodes[slot]);
+        return path;
+    }
+
+    double getStartingServiceTime(int slot) {
+        return Math.max(arrivalTimes[slot], dataModel.getReadyTime(ids[slot]));
+    }
+
+    void ensureLabels(int r) {
+        if (isLabeled[r]) return;
+        int label = 0, count = 0;
+        for (int slot = head[r]; slot != -1; slot = next[slot]) {
+            labels[slot] = label++;
+            routeOf[slot] = r;
+            if (nodes[slot] != depot) count++;
+        }
+        numDemandNodes[r] = count;
+        isLabeled[r] = true;
+    }
+
+    /**
+     * Position of the slot in route r (the slot must belong to r).
+     */
+    int getPosition(int r, int slot) {
+        ensureLabels(r);
+        return labels[slot];
+    }
+
+    int getNumDemandNodes(int r) {
+        ensureLabels(r);
+        return numDemandNodes[r];
+    }
+
+    /**
+     * Walk the schedule of a sequence of slots, given as a list of ranges [first, last] of the current lists,
+     * starting after slot start (whose schedule is unchanged).
+     * The last range must end at a tail: on it, the walk stops as soon as the schedule equals the stored one.
+     * @param apply store the new schedule (the lists must already be in the new order)
+     * @return true if the sequence is feasible (time windows and capacity)
+     */
+    boolean walk(int start, int[] ranges, boolean apply) {
+        int prevId = ids[start];
+        double startingServiceTime = getStartingServiceTime(start);
+        int load = loads[start];
+        for (int k = 0; k < ranges.length; k += 2) {
+            boolean isLastRange = k + 2 == ranges.length;
+            for (int slot = ranges[k]; ; slot = next[slot]) {
+                int u = ids[slot];
+                double arrivalTime = startingServiceTime + dataModel.getServiceTime(prevId) + dataModel.dist(prevId, u);
+                load = u == 0 ? 0 : load + dataModel.getDemand(u);  // reset at the depot
+                if (load > capacity || arrivalTime > dataModel.getDueTime(u)) return false;
+                double newStartingServiceTime = Math.max(arrivalTime, dataModel.getReadyTime(u));
+                if (isLastRange && newStartingServiceTime == getStartingServiceTime(slot) && load == loads[slot]) {
+                    if (apply) arrivalTimes[slot] = arrivalTime;
+                    return true;  // the rest of the schedule is unchanged
+                }
+                if (apply) {
+                    arrivalTimes[slot] = arrivalTime;
+                    loads[slot] = load;
+                }
+                prevId = u;
+                startingServiceTime = newStartingServiceTime;
+                if (slot == ranges[k + 1]) break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Or-opt move in route r: move the segment [x2 = next(x1), y1] between z1 and z2 = next(z1).
+     * @param isBefore z1 is before x1 in the route (else after y1)
+     */
+    boolean checkMoveSegment(int r, int x1, int y1, int z1, boolean isBefore) {
+        int x2 = next[x1], y2 = next[y1], z2 = next[z1];
+        return isBefore ? walk(z1, new int[]{x2, y1, z2, x1, y2, tail[r]}, false)
+                : walk(x1, new int[]{y2, z1, x2, y1, z2, tail[r]}, false);
+    }
+
+    void moveSegment(int r, int x1, int y1, int z1, boolean isBefore) {
+        int x2 = next[x1], y2 = next[y1], z2 = next[z1];
+        link(x1, y2);
+        link(z1, x2);
+        link(y1, z2);
+        isLabeled[r] = false;
+        isModified[r] = true;
+        // Recompute the schedule from the first modified position
+        if (isBefore) walk(z1, new int[]{x2, y1, z2, x1, y2, tail[r]}, true);
+        else walk(x1, new int[]{y2, z1, x2, y1, z2, tail[r]}, true);
+    }
+
+    /**
+     * 2-opt* move: r1 = (..., a1, b2, ...) and r2 = (..., a2, b1, ...), with b1 = next(a1), b2 = next(a2).
+     */
+    boolean checkSwapTails(int r1, int a1, int r2, int a2) {
+        return walk(a1, new int[]{next[a2], tail[r2]}, false) && walk(a2, new int[]{next[a1], tail[r1]}, false);
+    }
+
+    void swapTails(int r1, int a1, int r2, int a2) {
+        int b1 = next[a1], b2 = next[a2];
+        link(a1, b2);
+        link(a2, b1);
+        int t = tail[r1];
+        tail[r1] = tail[r2];
+        tail[r2] = t;
+        for (int r : new int[]{r1, r2}) {
+            isLabeled[r] = false;
+            isModified[r] = true;
+        }
+        walk(a1, new int[]{b2, tail[r1]}, true);
+        walk(a2, new int[]{b1, tail[r2]}, true);
+    }
+
+    void link(int u, int v) {
+        next[u] = v;
+        prev[v] = u;
+    }
+}
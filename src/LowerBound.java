@@ -0,0 +1,163 @@
+import java.io.File;
+import java.util.*;
+
+/**
+ * Lower bounds of the # vehicles of a test case, used as the target # vehicles of the solution algorithm:
+ * once a solution reaches the bound it is optimal w.r.t # vehicles, the vehicle minimization can stop.
+ *
+ * Notations: H = depot horizon (depot due time - ready time), Q = vehicle capacity, s0 = depot service time
+ * (between 2 trips of a vehicle), tau(i) = d(0, i) + s(i) + d(i, 0) = shortest trip serving customer i.
+ * A vehicle serving t trips spends (t - 1) * s0 at the depot, so it has H + s0 time for t "trips + s0".
+ *  - Capacity: T = ceil(total demand / Q) trips are needed, a vehicle makes at most
+ *    floor((H + s0) / (min tau + s0)) of them.
+ *  - Work: each customer takes its service time plus half of its cheapest incoming and outgoing arcs,
+ *    the T trips take s0 each, all within the H + s0 time of the vehicles.
+ *  - Time window: customers that can be served by the same vehicle in neither order are incompatible,
+ *    the customers of a clique of the incompatibility graph need different vehicles.
+ *  - Trip bin packing: 2 customers with demand > Q / 2 are in different trips, so their trips are items of size
+ *    tau(i) + s0 to pack into bins (vehicles) of size H + s0.
+ */
+public class LowerBound {
+    static final double EPSILON = 1e-6;  // rounding of the distances, do not round a bound up by mistake
+    static final int MAX_CLIQUE_NUM_CUSTOMERS = 5000;  // the time window bound is skipped above (n^2 bits)
+
+    /**
+     * @return the best (largest) lower bound of the # vehicles
+     */
+    static int compute(DataModel dataModel) {
+        return Math.max(Math.max(getCapacityBound(dataModel), getWorkBound(dataModel)),
+                Math.max(getTimeWindowBound(dataModel), getTripBinPackingBound(dataModel)));
+    }
+
+    static int getNumTrips(DataModel dataModel) {
+        return (int) Math.ceil(1.0 * dataModel.getTotalDemands() / dataModel.getVehicleCapacity());
+    }
+
+    static double getHorizon(DataModel dataModel) {
+        return dataModel.getDepot().dueTime - dataModel.getDepot().readyTime;
+    }
+
+    static double getShortestTrip(DataModel dataModel, Node u) {
+        return dataModel.distFromDepot(u) + u.serviceTime + dataModel.distFromDepot(u);
+    }
+
+    static int ceil(double value) {
+        return (int) Math.ceil(value - EPSILON);
+    }
+
+    static int getCapacityBound(DataModel dataModel) {
+        double s0 = dataModel.getDepot().serviceTime;
+        double shortestTrip = dataModel.getDemandNodes().stream().mapToDouble(u -> getShortestTrip(dataModel, u)).min().orElse(0);
+        if (shortestTrip + s0 <= 0) return 1;
+        int maxNumTripsPerVehicle = (int) Math.floor((getHorizon(dataModel) + s0) / (shortestTrip + s0) + EPSILON);
+        if (maxNumTripsPerVehicle == 0) return dataModel.getNumNodes() - 1;  // infeasible, each customer needs a vehicle
+        return Math.max(1, (getNumTrips(dataModel) + maxNumTripsPerVehicle - 1) / maxNumTripsPerVehicle);
+    }
+
+    static int getWorkBound(DataModel dataModel) {
+        Node depot = dataModel.getDepot();
+        List<Node> nodes = new ArrayList<>(dataModel.getDemandNodes());
+        nodes.add(depot);
+        double work = 0;
+        for (Node u : nodes) {
+            if (u == depot) continue;
+            double minIn = Double.MAX_VALUE, minOut = Double.MAX_VALUE;
+            for (Node v : nodes) {
+                if (v == u) continue;
+                minIn = Math.min(minIn, dataModel.dist(v, u));
+                minOut = Math.min(minOut, dataModel.dist(u, v));
+            }
+            work += u.serviceTime + (minIn + minOut) / 2;
+        }
+        work += getNumTrips(dataModel) * depot.serviceTime;
+        return Math.max(1, ceil(work / (getHorizon(dataModel) + depot.serviceTime)));
+    }
+
+    /**
+     * Size of a clique of the incompatibility graph, found greedily from each customer
+     * (add the compatible-with-none candidate of highest degree first).
+     */
+    static int getTimeWindowBound(DataModel dataModel) {
+        List<Node> customers = new ArrayList<>(dataModel.getDemandNodes());
+        int n = customers.size();
+        if (n == 0 || n > MAX_CLIQUE_NUM_CUSTOMERS) return 1;
+        customers.sort(Comparator.comparingInt(u -> u.id));
+        double depotReadyTime = dataModel.getDepot().readyTime;
+        double[] earliestStart = new double[n];
+        for (int i = 0; i < n; i++) {
+            earliestStart[i] = Math.max(customers.get(i).readyTime, depotReadyTime + dataModel.distFromDepot(customers.get(i)));
+        }
+        // Incompatibility graph as bit sets
+        int numWords = (n + 63) / 64;
+        long[][] incompatible = new long[n][numWords];
+        int[] degrees = new int[n];
+        for (int i = 0; i < n; i++) {
+            Node u = customers.get(i);
+            for (int j = i + 1; j < n; j++) {
+                Node v = customers.get(j);
+                // serving v after u (directly, the shortest way by triangle inequality) is too late, and vice versa
+                if (Utils.greaterThan(earliestStart[i] + u.serviceTime + dataModel.dist(u, v), v.dueTime)
+                        && Utils.greaterThan(earliestStart[j] + v.serviceTime + dataModel.dist(v, u), u.dueTime)) {
+                    incompatible[i][j >> 6] |= 1L << j;
+                    incompatible[j][i >> 6] |= 1L << i;
+                    degrees[i]++;
+                    degrees[j]++;
+                }
+            }
+        }
+        Integer[] byDegree = new Integer[n];
+        for (int i = 0; i < n; i++) byDegree[i] = i;
+        Arrays.sort(byDegree, (a, b) -> degrees[b] - degrees[a]);
+
+        int bestCliqueSize = 1;
+        long[] candidates = new long[numWords];
+        for (int start = 0; start < n; start++) {
+            if (degrees[start] + 1 <= bestCliqueSize) continue;  // cannot be in a larger clique
+            System.arraycopy(incompatible[start], 0, candidates, 0, numWords);
+            int cliqueSize = 1;
+            for (int k = 0; k < n; k++) {
+                int v = byDegree[k];
+                if ((candidates[v >> 6] & (1L << v)) == 0) continue;
+                cliqueSize++;
+                for (int w = 0; w < numWords; w++) candidates[w] &= incompatible[v][w];
+            }
+            bestCliqueSize = Math.max(bestCliqueSize, cliqueSize);
+        }
+        return bestCliqueSize;
+    }
+
+    static int getTripBinPackingBound(DataModel dataModel) {
+        double s0 = dataModel.getDepot().serviceTime, binSize = getHorizon(dataModel) + s0;
+        double totalSize = 0;
+        int numLargeItems = 0;
+        for (Node u : dataModel.getDemandNodes()) {
+            if (2 * u.demand <= dataModel.getVehicleCapacity()) continue;
+            double size = getShortestTrip(dataModel, u) + s0;
+            totalSize += size;
+            if (Utils.greaterThan(2 * size, binSize)) numLargeItems++;  // 2 of them do not fit in a bin
+        }
+        return Math.max(1, Math.max(numLargeItems, ceil(totalSize / binSize)));
+    }
+
+    /**
+     * Print the bounds of all test cases of a size: java LowerBound <# customers>
+     */
+    public static void main(String[] args) {
+        int numCustomers = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        File inputDirectory = new File(System.getProperty("user.dir") + "/input/" + numCustomers);
+        String[] testSets = Objects.requireNonNull(inputDirectory.list((dir, name) -> new File(dir, name).isDirectory()));
+        Arrays.sort(testSets);
+        System.out.println(String.format("%-20s %8s %8s %8s %8s %8s", "test case", "capacity", "work",
+                "tw", "packing", "bound"));
+        for (String testSet : testSets) {
+            String[] inputFiles = Objects.requireNonNull(new File(inputDirectory, testSet).list());
+            Arrays.sort(inputFiles);
+            for (String inputFile : inputFiles) {
+                DataModel dataModel = new DataModel(inputDirectory + "/" + testSet + "/" + inputFile, numCustomers);
+                System.out.println(String.format("%-20s %8d %8d %8d %8d %8d", testSet + "/" + inputFile,
+                        getCapacityBound(dataModel), getWorkBound(dataModel), getTimeWindowBound(dataModel),
+                        getTripBinPackingBound(dataModel), compute(dataModel)));
+            }
+        }
+    }
+}
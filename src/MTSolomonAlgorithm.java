@@ -10,6 +10,20 @@ public class MTSolomonAlgorithm implements ConstructionAlgorithm {
     // Each parameter set is used to compute cost function in Solomon's I1 insertion heuristic
     static final Parameter[] PARAMETERS = {new Parameter(1, 1, 0), new Parameter(2, 1, 0), new Parameter(1, 0, 1),
             new Parameter(2, 0, 1), new Parameter(1, 0.5, 0.5), new Parameter(2, 0.5, 0.5)};
+    // Evaluate all insertion positions of a route at once (InsertionCostBatch), by default
+    static final boolean BATCH_EVALUATION = true;
+    final boolean batchEvaluation;
+
+    public MTSolomonAlgorithm() {
+        this(BATCH_EVALUATION);
+    }
+
+    /**
+     * @param batchEvaluation false to evaluate insertion costs one position at a time (for benchmarks)
+     */
+    public MTSolomonAlgorithm(boolean batchEvaluation) {
+        this.batchEvaluation = batchEvaluation;
+    }
 
     /**
      * First we try different initialization criteria as suggested by Solomon:
@@ -19,17 +33,13 @@ public class MTSolomonAlgorithm implements ConstructionAlgorithm {
      */
     @Override
     public List<Route> run(DataModel dataModel) {
-        Set<Node> allCustomers = dataModel.getDemandNodes();
-
-        List<Node> orderedByDistance = new ArrayList<>(allCustomers);
-        orderedByDistance.sort((a, b) -> Double.compare(dataModel.distFromDepot(b), dataModel.distFromDepot(a)));
-
-        List<Node> orderedByDeadline = new ArrayList<>(allCustomers);
-        orderedByDeadline.sort(Comparator.comparingInt(a -> a.dueTime));
+        // Orderings precomputed by the data model
+        List<Node> orderedByDistance = dataModel.getCustomersByDecreasingDistanceFromDepot();
+        List<Node> orderedByDeadline = dataModel.getCustomersByDueTime();
 
         List<List<Node>> orderedCustomerSets = new ArrayList<>(Arrays.asList(orderedByDistance, orderedByDeadline));
         List<List<Route>> solutions = orderedCustomerSets.stream()
-                .map(orderedCustomerSet -> run(orderedCustomerSet, dataModel.getDepot().readyTime, dataModel))
+                .map(orderedCustomerSet -> run(orderedCustomerSet, dataModel.getDepot().readyTime, dataModel, batchEvaluation))
                 .collect(Collectors.toList());
 
         List<Route> bestSolution = null;
@@ -51,44 +61,55 @@ public class MTSolomonAlgorithm implements ConstructionAlgorithm {
      * @return the best solution constructed from the parameter sets
      */
     public static List<Route> run(List<Node> orderedCustomers, double departureTimeFromDepot, DataModel dataModel) {
+        return run(orderedCustomers, departureTimeFromDepot, dataModel, BATCH_EVALUATION);
+    }
+
+    static List<Route> run(List<Node> orderedCustomers, double departureTimeFromDepot, DataModel dataModel,
+                           boolean batchEvaluation) {
         return Arrays.stream(PARAMETERS)
-                .map(parameter -> runWithParameter(orderedCustomers, departureTimeFromDepot, dataModel, parameter))
+                .map(parameter -> runWithParameter(orderedCustomers, departureTimeFromDepot, dataModel, parameter,
+                        batchEvaluation))
                 .min(Comparator.comparingInt(List::size)).get();
     }
 
     /**
      * Run I1 sequential insertion heuristic for a specific parameter set.
+     * The insertion costs of un-routed customers are cached (InsertionCostCache), so that after each insertion
+     * only the positions affected by the insertion are re-evaluated.
+     *
      * @param orderedCustomers list of customers ordered by a specific criterion
      * @param departureTimeFromDepot to be used by other algorithms, default to 0
      * @param dataModel store all information related to the test case
      * @param parameter the parameter for cost function in I1 insertion heuristic
+     * @param batchEvaluation whether the insertion costs are evaluated with an InsertionCostBatch
      * @return solution (list of route) constructed by the sequential insertion heuristic
      */
     public static List<Route> runWithParameter(List<Node> orderedCustomers, double departureTimeFromDepot,
-                                               DataModel dataModel, Parameter parameter) {
-        List<Node> unRoutedCustomers = new ArrayList<>(orderedCustomers);  // Avoid modifying the original list
+                                               DataModel dataModel, Parameter parameter, boolean batchEvaluation) {
+        boolean[] isRouted = new boolean[orderedCustomers.size()];  // Avoid modifying the original list, mark routed customers instead
+        int nextSeedIdx = 0;
         List<Route> solution = new ArrayList<>();
         do {
-            // Seed node is the customer based on the ordering
-            Node seed = unRoutedCustomers.remove(0);
+            // Seed node is the first un-routed customer based on the ordering
+            while (isRouted[nextSeedIdx]) nextSeedIdx++;
+            Node seed = orderedCustomers.get(nextSeedIdx);
+            isRouted[nextSeedIdx] = true;
             // Initialize the route to (depot, seed, depot)
             Route route = new Route(dataModel, seed, departureTimeFromDepot);
+            InsertionCostCache insertionCostCache = new InsertionCostCache(route, orderedCustomers, isRouted, dataModel, parameter,
+                    batchEvaluation);
 
-            CustomerPosition bestCustomerPosition = getBestCustomerAndPosition(route, unRoutedCustomers, dataModel, parameter);
+            CustomerPosition bestCustomerPosition = insertionCostCache.getBestCustomerAndPosition();
             while (bestCustomerPosition != null) {  // loop until infeasible to insert any more customers
-                Node bestCustomer = bestCustomerPosition.node;
-                int insertPosition = bestCustomerPosition.position;
-
                 // Remove customer from un-routed set and insert into the route
-                unRoutedCustomers.remove(bestCustomer);
-                route.insertAtPosition(insertPosition, bestCustomer);
+                insertionCostCache.insert(bestCustomerPosition.node, bestCustomerPosition.position);
 
-                bestCustomerPosition = getBestCustomerAndPosition(route, unRoutedCustomers, dataModel, parameter);
+                bestCustomerPosition = insertionCostCache.getBestCustomerAndPosition();
 
                 // Try to add dummy depot to make multiple trips if possible
                 if (bestCustomerPosition == null) {
-                    route.addDummyDepot();
-                    bestCustomerPosition = getBestCustomerAndPosition(route, unRoutedCustomers, dataModel, parameter);
+                    insertionCostCache.addDummyDepot();
+                    bestCustomerPosition = insertionCostCache.getBestCustomerAndPosition();
                     if (bestCustomerPosition == null) {  // Remove dummy depot if needed
                         route.removeDummyDepot();
                     }
@@ -96,46 +117,26 @@ public class MTSolomonAlgorithm implements ConstructionAlgorithm {
             }
 
             solution.add(route);
-        } while (!unRoutedCustomers.isEmpty());
+        } while (!allRouted(isRouted));
 
         return solution;
     }
 
-    /**
-     * Get the best customer to be inserted in the route, and the position to be inserted
-     * based on evaluation function c2
-     *
-     * c2(i(u*), u*, j(u*)) = max[c2(i(u), u, j(u))], u un-routed and feasible
-     * c2 = lambda * d0u - c1(i, u, j)
-     *
-     * is the benefit derived from servicing a customer on the partial route being constructed,
-     * rather than on a direct route.
-     *
-     * @return the best customer to be inserted and its position in the route, or null if there is no feasible customer
-     */
-    static CustomerPosition getBestCustomerAndPosition(Route route, List<Node> unRoutedCustomers,
-                                                       DataModel dataModel, Parameter parameter) {
-        CustomerPosition result = null;
-        Double maxC2 = null;
-        for (Node customer : unRoutedCustomers) {
-            ValueAndPosition cur = getC2ValueAndPosition(route, customer, dataModel, parameter);
-            if (cur != null && (maxC2 == null || cur.value > maxC2)) {
-                maxC2 = cur.value;
-                result = new CustomerPosition(customer, cur.position);
-            }
+    static boolean allRouted(boolean[] isRouted) {
+        for (boolean routed : isRouted) {
+            if (!routed) return false;
         }
-        return result;
+        return true;
     }
 
     /**
-     * Get the best feasible insertion position of the customer u on the route.
+     * Get the best feasible insertion position of the customer u on the route (one position at a time).
      *
      * @return insertion cost or null if it's not feasible to insert this customer into the route.
      */
     public static ValueAndPosition getC2ValueAndPosition(Route route, Node u, DataModel dataModel, Parameter parameter) {
 //        assert !route.routedPath.contains(u);
         ValueAndPosition minC1 = null;
-
         for (int p = 1; p < route.getLength(); p++) {
             Double curCost = getC1InsertionCost(route, u, p, dataModel, parameter);
             if (curCost != null && (minC1 == null || curCost < minC1.value)) {
@@ -148,6 +149,26 @@ public class MTSolomonAlgorithm implements ConstructionAlgorithm {
         return new ValueAndPosition(c2, minC1.position);
     }
 
+    /**
+     * Get the best feasible insertion position of the customer u on the route of the batch (all positions at once).
+     * The batch is kept by the caller for the whole construction of the route, it is refreshed if the route changed.
+     *
+     * @return insertion cost or null if it's not feasible to insert this customer into the route.
+     */
+    public static ValueAndPosition getC2ValueAndPosition(InsertionCostBatch batch, Node u) {
+        double[] costs = batch.getC1InsertionCosts(u);
+        int bestPosition = -1;
+        for (int p = 1; p < batch.length; p++) {
+            if (costs[p] != InsertionCostBatch.INFEASIBLE && (bestPosition == -1 || costs[p] < costs[bestPosition])) {
+                bestPosition = p;
+            }
+        }
+        if (bestPosition == -1) return null;
+        double d0u = batch.dataModel.distFromDepot(u);
+        double c2 = batch.parameter.lambda * d0u - costs[bestPosition];
+        return new ValueAndPosition(c2, bestPosition);
+    }
+
     /**
      * Get the cost of inserting new customer u between i(p-1) and ip, or u between i(u) and j(u)
      * -> Route before insertion: (i0, ..., i(p-1), ip, ..., i0)
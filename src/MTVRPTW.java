@@ -1,6 +1,9 @@
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -13,7 +16,11 @@ public class MTVRPTW {
     static final int numCustomers = 100;  // Set this to 100 to test Solomon's test set
     static final TEST_CONFIG CONFIG = TEST_CONFIG.TEST_ILS;
     static final boolean SHOW_TEST_CASE_STATS = true;
+    static final boolean TRACE_CONVERGENCE = false;  // write the convergence of the ILS to output/<size>/traces/
+    static final boolean CHECKPOINT = false;  // checkpoint the ILS to output/<size>/checkpoints/, resume interrupted runs
+    static final long CHECKPOINT_INTERVAL = 60_000_000_000L;  // ns between checkpoints of the ILS
     static File inputDirectory, outputDirectory;
+    static final String SUMMARY_HEADER = "Format:\nTest set:\nTest cases:[]\n# vehicles:[]\nTotal distance:[]\nRuntime:[]\nCumulative:\n";
 
     static final Logger logger = Logger.getLogger(MTVRPTW.class.getName());
 
@@ -28,6 +35,10 @@ public class MTVRPTW {
             testLS();
         } else if (CONFIG == TEST_CONFIG.TEST_ALL) {
             testAll();
+        } else if (CONFIG == TEST_CONFIG.TEST_ISLAND_MODEL) {
+            testIslandModel();
+        } else if (CONFIG == TEST_CONFIG.TEST_INSERTION_COST) {
+            testInsertionCost();
         }
     }
 
@@ -45,7 +56,7 @@ public class MTVRPTW {
 
         File summaryResultFile = new File(outputDirectory + "/" + "summary.txt");
         FileWriter fileWriter = new FileWriter(summaryResultFile);
-        fileWriter.write("Format:\nTest set:\nTest cases:[]\n# vehicles:[]\nTotal distance:[]\nRuntime:[]\nCumulative:\n");
+        fileWriter.write(SUMMARY_HEADER);
 
         for (String testSet : testSets) {
             String testDirectory = inputDirectory + "/" + testSet;
@@ -58,7 +69,26 @@ public class MTVRPTW {
             for (int i = 0; i < inputFiles.length; i++) {
                 DataModel dataModel = new DataModel(testDirectory + "/" + inputFiles[i], numCustomers);
                 long start = System.nanoTime();
-                solution[i] = new SolutionAlgorithm().run(dataModel);
+                SolutionAlgorithm solutionAlgorithm = new SolutionAlgorithm();
+                if (TRACE_CONVERGENCE) solutionAlgorithm.trace = new ConvergenceTrace(getTraceFile(testSet, inputFiles[i]));
+                Path checkpointFile = CHECKPOINT ? getCheckpointFile(testSet, inputFiles[i]) : null;
+                if (CHECKPOINT) {
+                    if (Files.exists(checkpointFile)) {  // interrupted run, resume it
+                        try {
+                            solutionAlgorithm.resumeFrom = Checkpoint.read(checkpointFile, dataModel, solutionAlgorithm.seed);
+                            logger.info("Resume " + testSet + "/" + inputFiles[i] + " from " + checkpointFile);
+                        } catch (IOException e) {  // overwritten by the checkpoints of the new run
+                            logger.warning("Cannot resume from the checkpoint, start a new run: " + e.getMessage());
+                        }
+                    }
+                    solutionAlgorithm.checkpointWriter = new Checkpoint.Writer(checkpointFile, CHECKPOINT_INTERVAL);
+                }
+                solution[i] = solutionAlgorithm.run(dataModel);
+                if (solutionAlgorithm.trace != null) solutionAlgorithm.trace.close();
+                if (solutionAlgorithm.checkpointWriter != null) {
+                    solutionAlgorithm.checkpointWriter.close();
+                    Files.deleteIfExists(checkpointFile);  // solved, the output is written below
+                }
 
                 assert Utils.isValidSolution(dataModel, solution[i]);
 
@@ -68,32 +98,69 @@ public class MTVRPTW {
                 distanceTraveled[i] = ((int) (Utils.getTotalDistance(dataModel, solution[i]) * 10)) / 10.0;
                 runtimes[i] = System.nanoTime() - start;
             }
-            logMsg.append(testSet + "\n");
-            if (SHOW_TEST_CASE_STATS) {
-                logMsg.append(Arrays.toString(inputFiles) + "\n");
-                logMsg.append(Arrays.toString(solutionSizes) + "\n");
-                logMsg.append(Arrays.toString(distanceTraveled) + "\n");
-
-                // Show runtimes nicely in second
-                for (int i = 0; i < runtimes.length; i++) {
-                    runtimes[i] /= 1e7;
-                    runtimes[i] = ((int) runtimes[i]) / 100.0;
-                }
-                logMsg.append(Arrays.toString(runtimes) + "\n");
+            // Show runtimes nicely in second
+            for (int i = 0; i < runtimes.length; i++) {
+                runtimes[i] /= 1e7;
+                runtimes[i] = ((int) runtimes[i]) / 100.0;
             }
-            int sum = Arrays.stream(solutionSizes).sum();
-            cumulativeLength += sum;
-            logMsg.append("Cumulative # vehicles: " + sum + ", average: " + (1.0 * sum / inputFiles.length) + "\n");
+            logMsg.append(getTestSetSummary(testSet, inputFiles, solutionSizes, distanceTraveled, runtimes));
+            cumulativeLength += getNumVehicles(solutionSizes);
             logger.info(logMsg.toString());
             fileWriter.write(logMsg.toString());
             logMsg = new StringBuilder();
         }
-        logMsg.append("\nTotal # vehicles (all test sets): " + cumulativeLength + "\n");
+        logMsg.append(getTotalSummary(cumulativeLength));
         logger.info(logMsg.toString());
         fileWriter.write(logMsg.toString());
         fileWriter.close();
     }
 
+    /**
+     * Trace file of a test case: output/<size>/traces/<test set>/<test case>.csv
+     */
+    static File getTraceFile(String testSet, String inputFile) throws IOException {
+        File directory = new File(outputDirectory + "/traces/" + testSet);
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+        return new File(directory, inputFile.substring(0, inputFile.lastIndexOf('.')) + ".csv");
+    }
+
+    /**
+     * Checkpoint file of a test case: output/<size>/checkpoints/<test set>/<test case>.ckpt
+     */
+    static Path getCheckpointFile(String testSet, String inputFile) throws IOException {
+        Path directory = Paths.get(outputDirectory.getPath(), "checkpoints", testSet);
+        Files.createDirectories(directory);
+        return directory.resolve(inputFile.substring(0, inputFile.lastIndexOf('.')) + ".ckpt");
+    }
+
+    /**
+     * Summary of a test set, in the format of the summary file (see SUMMARY_HEADER).
+     * A negative solution size means the test case could not be solved, it is not counted in the cumulative # vehicles.
+     * @param runtimes runtimes in second
+     */
+    static String getTestSetSummary(String testSet, String[] inputFiles, int[] solutionSizes,
+                                    double[] distanceTraveled, double[] runtimes) {
+        StringBuilder summary = new StringBuilder(testSet + "\n");
+        if (SHOW_TEST_CASE_STATS) {
+            summary.append(Arrays.toString(inputFiles) + "\n");
+            summary.append(Arrays.toString(solutionSizes) + "\n");
+            summary.append(Arrays.toString(distanceTraveled) + "\n");
+            summary.append(Arrays.toString(runtimes) + "\n");
+        }
+        int sum = getNumVehicles(solutionSizes);
+        long numSolved = Arrays.stream(solutionSizes).filter(size -> size >= 0).count();
+        summary.append("Cumulative # vehicles: " + sum + ", average: " + (1.0 * sum / numSolved) + "\n");
+        return summary.toString();
+    }
+
+    static int getNumVehicles(int[] solutionSizes) {
+        return Arrays.stream(solutionSizes).filter(size -> size >= 0).sum();
+    }
+
+    static String getTotalSummary(int cumulativeLength) {
+        return "\nTotal # vehicles (all test sets): " + cumulativeLength + "\n";
+    }
+
     /**
      * Test a local search algorithm.
      * The solution construction algorithm is default to MTSolomonAlgorithm.
@@ -192,4 +259,106 @@ public class MTVRPTW {
         logMsg.append("Cumulative sum: " + Arrays.toString(cumulativeLength) + "\n");
         logger.info(logMsg.toString());
     }
+
+    /**
+     * Compare the island model (IslandModelAlgorithm) against the serial solution algorithm.
+     * For each test case, show the # vehicles, the time to reach this # vehicles and the total runtime (in seconds).
+     */
+    public static void testIslandModel() {
+        StringBuilder logMsg = new StringBuilder();
+
+        String[] testSets = inputDirectory.list((dir, name) -> new File(dir, name).isDirectory());
+        Arrays.sort(testSets);
+        logMsg.append("# islands: " + new IslandModelAlgorithm().numIslands + "\n");
+
+        int[] cumulativeLength = new int[2];
+        double[] cumulativeTimeToBest = new double[2];
+        for (String testSet : testSets) {
+            String testDirectory = inputDirectory + "/" + testSet;
+            String[] inputFiles = Objects.requireNonNull(new File(testDirectory).list((dir, name) -> new File(dir, name).isFile()));
+            Arrays.sort(inputFiles);
+            int[][] solutionSizes = new int[2][inputFiles.length];
+            double[][] timesToBest = new double[2][inputFiles.length], runtimes = new double[2][inputFiles.length];
+            for (int i = 0; i < inputFiles.length; i++) {
+                DataModel dataModel = new DataModel(testDirectory + "/" + inputFiles[i], numCustomers);
+
+                long start = System.nanoTime();
+                SolutionAlgorithm serial = new SolutionAlgorithm();
+                solutionSizes[0][i] = serial.run(dataModel).size();
+                runtimes[0][i] = Math.round((System.nanoTime() - start) / 1e7) / 100.0;
+                timesToBest[0][i] = Math.round(serial.timeToBestNumVehicles / 1e7) / 100.0;
+
+                start = System.nanoTime();
+                IslandModelAlgorithm islandModel = new IslandModelAlgorithm();
+                List<Route> solution = islandModel.run(dataModel);
+                assert Utils.isValidSolution(dataModel, solution);
+                solutionSizes[1][i] = solution.size();
+                runtimes[1][i] = Math.round((System.nanoTime() - start) / 1e7) / 100.0;
+                timesToBest[1][i] = Math.round(islandModel.timeToBestNumVehicles / 1e7) / 100.0;
+            }
+            logMsg.append(testSet + ":\n");
+            if (SHOW_TEST_CASE_STATS) {
+                logMsg.append(Arrays.toString(inputFiles) + "\n");
+                for (int j = 0; j < 2; j++) {
+                    logMsg.append(j == 0 ? "Serial:\n" : "Island model:\n");
+                    logMsg.append(Arrays.toString(solutionSizes[j]) + "\n");
+                    logMsg.append(Arrays.toString(timesToBest[j]) + "\n");
+                    logMsg.append(Arrays.toString(runtimes[j]) + "\n");
+                }
+            }
+            for (int j = 0; j < 2; j++) {
+                cumulativeLength[j] += Arrays.stream(solutionSizes[j]).sum();
+                cumulativeTimeToBest[j] += Arrays.stream(timesToBest[j]).sum();
+            }
+            logger.info(logMsg.toString());
+            logMsg = new StringBuilder();
+        }
+        logMsg.append("Cumulative # vehicles (serial, island model): " + Arrays.toString(cumulativeLength) + "\n");
+        logMsg.append("Cumulative time to best # vehicles: " + Arrays.toString(cumulativeTimeToBest) + "\n");
+        logger.info(logMsg.toString());
+    }
+
+    /**
+     * Compare the runtime of MT-Solomon with scalar and batch evaluation of the insertion costs (InsertionCostBatch).
+     * Each test set is solved NUM_REPETITIONS times with each mode (alternating, the first round is a warm-up).
+     */
+    public static void testInsertionCost() {
+        final int NUM_REPETITIONS = 3;
+        StringBuilder logMsg = new StringBuilder();
+
+        String[] testSets = inputDirectory.list((dir, name) -> new File(dir, name).isDirectory());
+        Arrays.sort(testSets);
+
+        double[] cumulativeRuntimes = new double[2];  // scalar, batch
+        for (String testSet : testSets) {
+            String testDirectory = inputDirectory + "/" + testSet;
+            String[] inputFiles = Objects.requireNonNull(new File(testDirectory).list((dir, name) -> new File(dir, name).isFile()));
+            Arrays.sort(inputFiles);
+            List<DataModel> dataModels = new ArrayList<>();
+            for (String inputFile : inputFiles) dataModels.add(new DataModel(testDirectory + "/" + inputFile, numCustomers));
+
+            double[] runtimes = new double[2];
+            int[][] solutionSizes = new int[2][inputFiles.length];
+            for (int rep = 0; rep <= NUM_REPETITIONS; rep++) {
+                for (int mode = 0; mode < 2; mode++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < inputFiles.length; i++) {
+                        solutionSizes[mode][i] = new MTSolomonAlgorithm(mode == 1).run(dataModels.get(i)).size();
+                    }
+                    if (rep > 0) runtimes[mode] += (System.nanoTime() - start) / 1e6 / NUM_REPETITIONS;
+                }
+            }
+            assert Arrays.equals(solutionSizes[0], solutionSizes[1]);
+
+            logMsg.append(testSet + ": scalar " + Math.round(runtimes[0]) + " ms, batch " + Math.round(runtimes[1])
+                    + " ms, speedup " + Math.round(runtimes[0] / runtimes[1] * 100) / 100.0 + "\n");
+            cumulativeRuntimes[0] += runtimes[0];
+            cumulativeRuntimes[1] += runtimes[1];
+            logger.info(logMsg.toString());
+            logMsg = new StringBuilder();
+        }
+        logMsg.append("Total: scalar " + Math.round(cumulativeRuntimes[0]) + " ms, batch " + Math.round(cumulativeRuntimes[1])
+                + " ms, speedup " + Math.round(cumulativeRuntimes[0] / cumulativeRuntimes[1] * 100) / 100.0 + "\n");
+        logger.info(logMsg.toString());
+    }
 }
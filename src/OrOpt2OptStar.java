@@ -73,61 +73,88 @@ public class OrOpt2OptStar {
     }
 
     /**
-     * Run 2-opt* until local optima
+     * Run 2-opt* until local optima.
+     * Route pairs to examine are kept in a work queue. After an exchange, only the pairs involving
+     * one of the 2 modified routes are enqueued again. Empty routes are marked as removed (O(1))
+     * and dropped from the solution at the end.
+     * The routes are stored as linked lists (LinkedRoutes) during the search: an exchange swaps the tails of 2 routes
+     * in O(1), the modified routes are written back once at the end.
      * @param solution
      * @param dataModel
      */
     static List<Route> run2OptStarExchange(List<Route> solution, DataModel dataModel) {
-        for (int r1Idx = 0; r1Idx < solution.size() - 1; r1Idx++) {
-            Route r1 = solution.get(r1Idx);
-            int r1Load = 0;
-            for (int i = 0; i < r1.getLength() - 1; i++) {
-                Node a1 = r1.get(i), b1 = r1.get(i + 1);
-                r1Load = a1 == dataModel.getDepot() ? 0 : r1Load + a1.demand;
-                for (int r2Idx = r1Idx + 1; r2Idx < solution.size(); r2Idx++) {
-                    Route r2 = solution.get(r2Idx);
-                    int r2Load = 0;
-                    for (int j = 0; j < r2.getLength() - 1; j++) {
-                        Node a2 = r2.get(j), b2 = r2.get(j + 1);
-                        r2Load = a2 == dataModel.getDepot() ? 0 : r2Load + a2.demand;
-
-                        // Check feasibility and compute cost
-                        // check cost (later can change to a function of time and distance)
-                        double a1b1 = dataModel.dist(a1, b1), a2b2 = dataModel.dist(a2, b2),
-                                a1b2 = dataModel.dist(a1, b2), a2b1 = dataModel.dist(a2, b1);
-                        double saving = a1b2 + a2b1 - (a1b1 + a2b2);
-                        if (saving <= EPSILON) continue;
-
-                        // check vehicle capacity
-                        boolean checkCapacity = (r1Load + (r2.getVehicleLoadCurTrip(j + 1) - r2Load) <= dataModel.getVehicleCapacity())
-                                && (r2Load + (r1.getVehicleLoadCurTrip(i + 1) - r1Load) <= dataModel.getVehicleCapacity());
-                        if (!checkCapacity) continue;
-
-                        // check time feasibility
-                        // Compute new arrival time at b1 and b2
-                        double arrivalTimeB1 = r2.getStartingServiceTimeAt(j) + a2.serviceTime + a2b1;
-                        double arrivalTimeB2 = r1.getStartingServiceTimeAt(i) + a1.serviceTime + a1b2;
-                        double pushForwardB1 = Math.max(arrivalTimeB1, b1.readyTime) - r1.getStartingServiceTimeAt(i + 1);
-                        double pushForwardB2 = Math.max(arrivalTimeB2, b2.readyTime) - r2.getStartingServiceTimeAt(j + 1);
-                        boolean checkTime = r1.checkPushForwardTimeFromPosition(pushForwardB1, i + 1)
-                                && r2.checkPushForwardTimeFromPosition(pushForwardB2, j + 1);
-                        if (!checkTime) continue;
-
-                        // now we do 2-opt* exchange
-                        Utils.exchangeTwoOptStar(dataModel, r1, i, r2, j);
-                        if (r1.getNumDemandNodes() == 0) {  // not empty route (if empty -> we just reduce # routes)
-                            solution.remove(r1);
-                        }
-                        if (r2.getNumDemandNodes() == 0) {  // not empty route (if empty -> we just reduce # routes)
-                            solution.remove(r2);
-                        }
+        List<Route> routes = new ArrayList<>(solution);  // route indices are stable, routes are never shifted
+        LinkedRoutes linkedRoutes = new LinkedRoutes(dataModel, routes);
+        int n = routes.size();
+        boolean[] isRemoved = new boolean[n];
+        boolean[][] isQueued = new boolean[n][n];
+        Deque<int[]> queue = new ArrayDeque<>();
+        for (int r1Idx = 0; r1Idx < n - 1; r1Idx++) {
+            for (int r2Idx = r1Idx + 1; r2Idx < n; r2Idx++) {
+                queue.add(new int[]{r1Idx, r2Idx});
+                isQueued[r1Idx][r2Idx] = true;
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int[] pair = queue.poll();
+            int r1Idx = pair[0], r2Idx = pair[1];
+            isQueued[r1Idx][r2Idx] = false;
+            if (isRemoved[r1Idx] || isRemoved[r2Idx]) continue;
+            if (!exchangeFirstFeasible(linkedRoutes, r1Idx, r2Idx, dataModel)) continue;
 
-                        return run2OptStarExchange(solution, dataModel);
+            // not empty route (if empty -> we just reduce # routes)
+            if (linkedRoutes.getNumDemandNodes(r1Idx) == 0) isRemoved[r1Idx] = true;
+            if (linkedRoutes.getNumDemandNodes(r2Idx) == 0) isRemoved[r2Idx] = true;
+            // Re-examine all pairs involving a modified route
+            for (int modifiedIdx : new int[]{r1Idx, r2Idx}) {
+                if (isRemoved[modifiedIdx]) continue;
+                for (int otherIdx = 0; otherIdx < n; otherIdx++) {
+                    if (otherIdx == modifiedIdx || isRemoved[otherIdx]) continue;
+                    int a = Math.min(modifiedIdx, otherIdx), b = Math.max(modifiedIdx, otherIdx);
+                    if (!isQueued[a][b]) {
+                        queue.add(new int[]{a, b});
+                        isQueued[a][b] = true;
                     }
                 }
             }
         }
-        assert Utils.isValidSolution(dataModel, solution);
-        return solution;
+
+        linkedRoutes.writeBack(routes);
+        List<Route> result = new ArrayList<>();
+        for (int r = 0; r < n; r++) {
+            if (!isRemoved[r]) result.add(routes.get(r));
+        }
+        assert Utils.isValidSolution(dataModel, result);
+        return result;
+    }
+
+    /**
+     * Apply the first feasible 2-opt* exchange between routes r1 and r2 (if any).
+     * @return true if an exchange is applied
+     */
+    static boolean exchangeFirstFeasible(LinkedRoutes linkedRoutes, int r1, int r2, DataModel dataModel) {
+        int[] next = linkedRoutes.next;
+        Node[] nodes = linkedRoutes.nodes;
+        for (int a1 = linkedRoutes.head[r1]; next[a1] != -1; a1 = next[a1]) {
+            Node a1Node = nodes[a1], b1Node = nodes[next[a1]];
+            for (int a2 = linkedRoutes.head[r2]; next[a2] != -1; a2 = next[a2]) {
+                Node a2Node = nodes[a2], b2Node = nodes[next[a2]];
+
+                // Check feasibility and compute cost
+                // check cost (later can change to a function of time and distance)
+                double saving = dataModel.dist(a1Node, b2Node) + dataModel.dist(a2Node, b1Node)
+                        - (dataModel.dist(a1Node, b1Node) + dataModel.dist(a2Node, b2Node));
+                if (saving <= EPSILON) continue;
+
+                // check vehicle capacity and time feasibility of both new routes
+                if (!linkedRoutes.checkSwapTails(r1, a1, r2, a2)) continue;
+
+                // now we do 2-opt* exchange
+                linkedRoutes.swapTails(r1, a1, r2, a2);
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -8,72 +8,83 @@ import java.util.*;
 public class OrOptAlgorithm {
     static final double EPSILON = 0.01;
     public static List<Route> run(List<Route> solution, DataModel dataModel) {
+        return run(solution, dataModel, null);
+    }
+
+    /**
+     * @param cache results of previous runs on single routes, can be null
+     */
+    public static List<Route> run(List<Route> solution, DataModel dataModel, OrOptCache cache) {
         // Use deep copy so that we can modify routes without changing the original solution
         List<Route> curSolution = Utils.deepCopySolution(solution);
-        curSolution.forEach(r -> orOptBestFeasible(r, dataModel));
+        if (cache == null) curSolution.forEach(r -> orOptBestFeasible(r, dataModel));
+        else curSolution.forEach(r -> cache.orOptBestFeasible(r, dataModel));
         return curSolution;
     }
 
-    public static void optimizeDistance(List<Route> s, DataModel dataModel) {
-        s.forEach(r -> orOptFirstFeasible(r, dataModel));
+    /**
+     * Optimize the travel distance of each route with first-feasible Or-opt.
+     * @param routes the routes to optimize, typically the routes modified since the last call
+     * @return the routes modified by the algorithm
+     */
+    public static Set<Route> optimizeDistance(Collection<Route> routes, DataModel dataModel) {
+        Set<Route> modifiedRoutes = new HashSet<>();
+        for (Route r : routes) {
+            if (orOptFirstFeasible(r, dataModel)) modifiedRoutes.add(r);
+        }
+        return modifiedRoutes;
     }
 
     /**
      * Run Or-opt algorithm to optimize a route.
      * Acceptance criterion is set to best-feasible move.
      * The cost function is defined based on travel distance.
+     * As in orOptFirstFeasible, the route is stored as a linked list (LinkedRoutes) during the search: a candidate
+     * move is checked from the first modified position without building the new path, and the route is only
+     * written back once at the end (if modified).
      * @param route input route
      * @param dataModel
      */
     static void orOptBestFeasible(Route route, DataModel dataModel) {
-        int n = route.getLength();
-        if (n <= 3) return;
+        if (route.getLength() <= 3) return;
+        LinkedRoutes linkedRoutes = new LinkedRoutes(dataModel, Collections.singletonList(route));
+        int[] next = linkedRoutes.next, ids = linkedRoutes.ids;
 
         for (int segmentLength = 1; segmentLength <= 3; segmentLength++) {
             double minCost = 1e9;
-            List<Node> bestPath = null;
-            for (int i = 0; i < n - segmentLength - 1; i++) {
-                Node x1 = route.get(i), x2 = route.get(i + 1);
-                int j = i + segmentLength;
-                Node y1 = route.get(j), y2 = route.get(j + 1);
-                for (int k = 0; k < n - 1; k++) {
-                    if (k >= i && k <= j) continue;
-                    Node z1 = route.get(k), z2 = route.get(k + 1);
+            int bestX1 = -1, bestY1 = -1, bestZ1 = -1;
+            boolean bestIsBefore = false;
+            for (int x1 = linkedRoutes.head[0]; ; x1 = next[x1]) {
+                int y1 = x1;
+                for (int l = 0; l < segmentLength && y1 != -1; l++) y1 = next[y1];
+                if (y1 == -1 || next[y1] == -1) break;  // no room for a segment after x1
+                int x2 = ids[next[x1]], y2 = ids[next[y1]];
+                boolean isBefore = true;  // z1 is before x1
+                for (int z1 = linkedRoutes.head[0]; next[z1] != -1; z1 = next[z1]) {
+                    if (z1 == x1) {  // skip the positions from x1 to y1
+                        z1 = y1;
+                        isBefore = false;
+                        continue;
+                    }
+                    int z2 = ids[next[z1]];
                     // same cost function calculation for both cases (below)
                     // minimize the cost -> compute f(after) - f(before)
-                    double cost = dataModel.dist(x1, y2) + dataModel.dist(z1, x2) + dataModel.dist(y1, z2)
-                            - (dataModel.dist(x1, x2) + dataModel.dist(y1, y2) + dataModel.dist(z1, z2));
+                    double cost = dataModel.dist(ids[x1], y2) + dataModel.dist(ids[z1], x2) + dataModel.dist(ids[y1], z2)
+                            - (dataModel.dist(ids[x1], x2) + dataModel.dist(ids[y1], y2) + dataModel.dist(ids[z1], z2));
 
-                    if (cost < minCost) {  // only construct the new route if the cost is better than minCost
-                        // We defer the re-constructing route operation to optimize performance
-                        List<Node> oldPath = route.routedPath;
-                        List<Node> newPath = new ArrayList<>();
-
-                        // Customers from x2 to y1 would be moved from its current position, between x1 andy2,
-                        // to position between customers z1 and z2.
-                        if (k < i) {
-                            newPath.addAll(oldPath.subList(0, k + 1));  // [0, z1]
-                            newPath.addAll(oldPath.subList(i + 1, j + 1));  // [x2, y1]
-                            newPath.addAll(oldPath.subList(k + 1, i + 1));  // [z2, x1]
-                            newPath.addAll(oldPath.subList(j + 1, n));  // [y2, 0]
-                        } else {
-                            newPath.addAll(oldPath.subList(0, i + 1));  // [0, x1]
-                            newPath.addAll(oldPath.subList(j + 1, k + 1));  // [y2, z1]
-                            newPath.addAll(oldPath.subList(i + 1, j + 1));  // [x2, y1]
-                            newPath.addAll(oldPath.subList(k + 1, n));  // [z2, 0]
-                        }
-                        if (Utils.checkRoutedPathFeasibility(dataModel, newPath)) {
-                            minCost = cost;
-                            bestPath = newPath;
-                        }
+                    // Customers from x2 to y1 would be moved from between x1 and y2 to between z1 and z2
+                    if (cost < minCost && linkedRoutes.checkMoveSegment(0, x1, y1, z1, isBefore)) {
+                        minCost = cost;
+                        bestX1 = x1;
+                        bestY1 = y1;
+                        bestZ1 = z1;
+                        bestIsBefore = isBefore;
                     }
                 }
             }
-            if (bestPath != null) {
-                route.routedPath = bestPath;
-                route.initializeVariables();
-            }
+            if (bestX1 != -1) linkedRoutes.moveSegment(0, bestX1, bestY1, bestZ1, bestIsBefore);
         }
+        linkedRoutes.writeBack(Collections.singletonList(route));  // only if modified
     }
 
     /**
@@ -83,12 +94,23 @@ public class OrOptAlgorithm {
      *      length equal 1, 2, 3 until no improvement can by done:
      *      in every iteration immediately makes permanent the first move found that gives any length gain.
      * Only accept moves that gain more than EPSILON to save runtime.
+     *
+     * Don't-look bits (per segment length and first customer of the segment) skip segments that had no improving move.
+     * After a move, the bits are reset for the segments around the 3 new arcs (their gain has changed).
+     * Depots are shared by all trips, so segments starting at a depot are always examined.
+     * The route is stored as a linked list (LinkedRoutes) during the search: a move is O(1), and the schedule is
+     * only checked and updated from the first modified position. The route is written back once at the end.
      * @param route input route
      * @param dataModel
+     * @return true if the route is modified
      */
-    static void orOptFirstFeasible(Route route, DataModel dataModel) {
-        int n = route.getLength();
-        if (n <= 3) return;
+    static boolean orOptFirstFeasible(Route route, DataModel dataModel) {
+        if (route.getLength() <= 3) return false;
+        LinkedRoutes linkedRoutes = new LinkedRoutes(dataModel, Collections.singletonList(route));
+        int[] next = linkedRoutes.next, prev = linkedRoutes.prev;
+        Node[] nodes = linkedRoutes.nodes;
+        boolean[][] dontLook = new boolean[4][dataModel.getNumNodes()];  // by segment length, then by customer id
+        boolean modified = false;
         boolean localOptimal = false;
 
         whileLoop:
@@ -96,44 +118,48 @@ public class OrOptAlgorithm {
             localOptimal = true;
 
             for (int segmentLength = 1; segmentLength <= 3; segmentLength++) {
-                for (int i = 0; i < n - segmentLength - 1; i++) {
-                    Node x1 = route.get(i), x2 = route.get(i + 1);
-                    int j = i + segmentLength;
-                    Node y1 = route.get(j), y2 = route.get(j + 1);
-                    for (int k = 0; k < n - 1; k++) {
-                        if (k >= i && k <= j) continue;
-                        Node z1 = route.get(k), z2 = route.get(k + 1);
+                for (int x1 = linkedRoutes.head[0]; ; x1 = next[x1]) {
+                    int y1 = x1;
+                    for (int l = 0; l < segmentLength && y1 != -1; l++) y1 = next[y1];
+                    if (y1 == -1 || next[y1] == -1) break;  // no room for a segment after x1
+                    int x2 = next[x1], y2 = next[y1];
+                    Node x1Node = nodes[x1], x2Node = nodes[x2], y1Node = nodes[y1], y2Node = nodes[y2];
+                    if (dontLook[segmentLength][x2Node.id]) continue;
+                    boolean isBefore = true;  // z1 is before x1
+                    for (int z1 = linkedRoutes.head[0]; next[z1] != -1; z1 = next[z1]) {
+                        if (z1 == x1) {  // skip the positions from x1 to y1
+                            z1 = y1;
+                            isBefore = false;
+                            continue;
+                        }
+                        int z2 = next[z1];
+                        Node z1Node = nodes[z1], z2Node = nodes[z2];
                         // same cost function calculation for both cases (below)
                         // maximize the gain = dist(before) - dist(after)
-                        double gain = dataModel.dist(x1, x2) + dataModel.dist(y1, y2) + dataModel.dist(z1, z2)
-                                - (dataModel.dist(x1, y2) + dataModel.dist(z1, x2) + dataModel.dist(y1, z2));
-                        if (gain > EPSILON) {  // to reduce runtime, only accept move if its gain > EPSILON
-                            List<Node> oldPath = route.routedPath;
-                            List<Node> newPath = new ArrayList<>();
-
-                            // Customers from x2 to y1 would be moved from its current position, between x1 andy2,
-                            // to position between customers z1 and z2.
-                            if (k < i) {
-                                newPath.addAll(oldPath.subList(0, k + 1));  // [0, z1]
-                                newPath.addAll(oldPath.subList(i + 1, j + 1));  // [x2, y1]
-                                newPath.addAll(oldPath.subList(k + 1, i + 1));  // [z2, x1]
-                                newPath.addAll(oldPath.subList(j + 1, n));  // [y2, 0]
-                            } else {
-                                newPath.addAll(oldPath.subList(0, i + 1));  // [0, x1]
-                                newPath.addAll(oldPath.subList(j + 1, k + 1));  // [y2, z1]
-                                newPath.addAll(oldPath.subList(i + 1, j + 1));  // [x2, y1]
-                                newPath.addAll(oldPath.subList(k + 1, n));  // [z2, 0]
-                            }
-                            if (Utils.checkRoutedPathFeasibility(dataModel, newPath)) {
-                                route.routedPath = newPath;
-                                route.initializeVariables();
-                                localOptimal = false;
-                                continue whileLoop;
+                        double gain = dataModel.dist(x1Node, x2Node) + dataModel.dist(y1Node, y2Node) + dataModel.dist(z1Node, z2Node)
+                                - (dataModel.dist(x1Node, y2Node) + dataModel.dist(z1Node, x2Node) + dataModel.dist(y1Node, z2Node));
+                        // to reduce runtime, only accept move if its gain > EPSILON
+                        if (gain > EPSILON && linkedRoutes.checkMoveSegment(0, x1, y1, z1, isBefore)) {
+                            // Customers from x2 to y1 are moved from between x1 and y2 to between z1 and z2
+                            linkedRoutes.moveSegment(0, x1, y1, z1, isBefore);
+                            modified = true;
+                            // Segments starting right after or ending right before a new arc
+                            for (int arc : new int[]{x1, z1, y1}) {
+                                int p = arc;
+                                for (int l = 0; l < 2 && prev[p] != -1; l++) p = prev[p];
+                                for (; p != -1 && p != next[next[arc]]; p = next[p]) {
+                                    for (int len = 1; len <= 3; len++) dontLook[len][nodes[p].id] = false;
+                                }
                             }
+                            localOptimal = false;
+                            continue whileLoop;
                         }
                     }
+                    if (x2Node != dataModel.getDepot()) dontLook[segmentLength][x2Node.id] = true;  // no improving move
                 }
             }
         }
+        if (modified) linkedRoutes.writeBack(Collections.singletonList(route));
+        return modified;
     }
 }
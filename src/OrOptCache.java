@@ -0,0 +1,61 @@
+import java.util.*;
+
+/**
+ * Cache of the results of Or-opt (OrOptAlgorithm.orOptBestFeasible) on single routes.
+ * The result only depends on the sequence of nodes of the route, so entries are keyed by the route fingerprint.
+ * A route not modified since it was cached (same version) is skipped without comparing its path,
+ * otherwise the path is compared with the cached one to rule out fingerprint collisions.
+ * The least recently used entries are evicted once the cache is full.
+ *
+ * Not thread-safe: each solver uses its own cache.
+ */
+class OrOptCache {
+    static final int CAPACITY = 10000;
+
+    Map<Long, CachedResult> entries = new LinkedHashMap<Long, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedResult> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    long numHits, numMisses;
+
+    /**
+     * Same as OrOptAlgorithm.orOptBestFeasible, reuse the result if the route was optimized before.
+     */
+    void orOptBestFeasible(Route route, DataModel dataModel) {
+        long fingerprint = route.getFingerprint();
+        CachedResult entry = entries.get(fingerprint);
+        if (entry != null && (entry.inputVersion == route.version || entry.inputPath.equals(route.routedPath))) {
+            numHits++;
+            if (entry.outputPath != null) {
+                route.routedPath = new ArrayList<>(entry.outputPath);
+                route.initializeVariables();
+            }
+            return;
+        }
+        numMisses++;
+        long inputVersion = route.version;
+        List<Node> inputPath = new ArrayList<>(route.routedPath);
+        OrOptAlgorithm.orOptBestFeasible(route, dataModel);
+        List<Node> outputPath = route.version == inputVersion ? null : new ArrayList<>(route.routedPath);
+        entries.put(fingerprint, new CachedResult(inputVersion, inputPath, outputPath));
+    }
+
+    double getHitRate() {
+        long total = numHits + numMisses;
+        return total == 0 ? 0 : 1.0 * numHits / total;
+    }
+
+    static class CachedResult {
+        final long inputVersion;
+        final List<Node> inputPath;
+        final List<Node> outputPath;  // null if Or-opt does not modify the route
+
+        CachedResult(long inputVersion, List<Node> inputPath, List<Node> outputPath) {
+            this.inputVersion = inputVersion;
+            this.inputPath = inputPath;
+            this.outputPath = outputPath;
+        }
+    }
+}
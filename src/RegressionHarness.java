@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Performance regression harness: solve selected test cases of input/ with the solution algorithm (fixed seed),
+ * and compare wall time, CPU time, allocated bytes, # vehicles and distance with a checked-in baseline.
+ *
+ * Each test case is solved REPETITIONS times (round-robin over the test cases, so that a drift of the machine
+ * affects all of them alike). The baseline stores the mean and standard deviation of each cost measure.
+ * A cost measure regresses if its mean exceeds the baseline mean by more than both:
+ *  - TOLERANCE_SIGMAS standard errors of the difference of the means (Welch), and
+ *  - MIN_RELATIVE_TOLERANCE of the baseline mean (noise floor of the machine).
+ * The seed is fixed, so the solution is deterministic: any increase of # vehicles, or of the distance by more than
+ * DISTANCE_TOLERANCE, is a regression.
+ * Results are grouped by instance class (test set, e.g. R1): a class regresses if any of its test cases regresses.
+ *
+ * The report (output/regression/report.txt) only contains the measures and verdicts, in a fixed order and format,
+ * so that 2 reports can be diffed. The baseline depends on the machine: regenerate it with --update.
+ *
+ * Usage: java RegressionHarness [--update] [--repetitions <n>] [<size>/<set>/<file> ...]
+ * Exit code 1 if any regression is found.
+ */
+public class RegressionHarness {
+    static final String[] DEFAULT_TEST_CASES = {"100/C1/c101.txt", "100/C2/c201.txt", "100/R1/r101.txt",
+            "100/R2/r201.txt", "100/RC1/rc101.txt", "100/RC2/rc201.txt"};
+    static final Path BASELINE_FILE = Paths.get(System.getProperty("user.dir"), "regression", "baseline.txt");
+    static final Path REPORT_FILE = Paths.get(System.getProperty("user.dir"), "output", "regression", "report.txt");
+    static final int REPETITIONS = 3;
+    static final long SEED = 0;
+    static final double TOLERANCE_SIGMAS = 3;
+    static final double MIN_RELATIVE_TOLERANCE = 0.1;
+    static final double DISTANCE_TOLERANCE = 1e-3;  // relative
+    static final String[] COST_MEASURES = {"wall_s", "cpu_s", "alloc_mb"};
+    static final Logger logger = Logger.getLogger(RegressionHarness.class.getName());
+
+    public static void main(String[] args) throws IOException {
+        boolean update = false;
+        int repetitions = REPETITIONS;
+        List<String> testCases = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--update")) update = true;
+            else if (args[i].equals("--repetitions")) repetitions = Integer.parseInt(args[++i]);
+            else testCases.add(args[i]);
+        }
+        if (testCases.isEmpty()) testCases.addAll(Arrays.asList(DEFAULT_TEST_CASES));
+
+        Map<String, Result> results = run(testCases, repetitions);
+        if (update) {
+            writeBaseline(results);
+            logger.info("Baseline written to " + BASELINE_FILE);
+            return;
+        }
+        Map<String, Result> baseline = readBaseline();
+        List<String> report = new ArrayList<>();
+        boolean regression = compare(results, baseline, report);
+        Files.createDirectories(REPORT_FILE.getParent());
+        Files.write(REPORT_FILE, report);
+        logger.info(String.join("\n", report));
+        if (regression) System.exit(1);
+    }
+
+    /**
+     * Solve each test case the given # times.
+     * @return results by test case
+     */
+    static Map<String, Result> run(List<String> testCases, int repetitions) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Map<String, Result> results = new TreeMap<>();
+        testCases.forEach(testCase -> results.put(testCase, new Result(repetitions)));
+        for (int r = 0; r < repetitions; r++) {
+            for (String testCase : testCases) {
+                int numCustomers = Integer.parseInt(testCase.substring(0, testCase.indexOf('/')));
+                DataModel dataModel = new DataModel(System.getProperty("user.dir") + "/input/" + testCase, numCustomers);
+                SolutionAlgorithm solutionAlgorithm = new SolutionAlgorithm(SEED);
+                // Default path (PARALLEL_STRONG_PERTURBATION is off): CPU time and allocation of this thread only
+                solutionAlgorithm.parallelStrongPerturbation = false;
+
+                long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+                long cpuTimeBefore = threadBean.getCurrentThreadCpuTime();
+                long start = System.nanoTime();
+                List<Route> solution = solutionAlgorithm.run(dataModel);
+                Result result = results.get(testCase);
+                result.measures.get("wall_s")[r] = (System.nanoTime() - start) / 1e9;
+                result.measures.get("cpu_s")[r] = (threadBean.getCurrentThreadCpuTime() - cpuTimeBefore) / 1e9;
+                result.measures.get("alloc_mb")[r] = (threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / 1e6;
+
+                int numVehicles = solution.size();
+                double distance = Utils.getTotalDistance(dataModel, solution);
+                if (r > 0 && (numVehicles != result.numVehicles || distance != result.distance)) {
+                    logger.warning(testCase + ": the solution differs between repetitions");
+                }
+                result.numVehicles = numVehicles;
+                result.distance = distance;
+                logger.info(String.format("%s, repetition %d: %d vehicles, distance %.1f, %.2fs", testCase, r + 1,
+                        numVehicles, distance, result.measures.get("wall_s")[r]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compare the results with the baseline, and write the report lines.
+     * @return true if any regression is found
+     */
+    static boolean compare(Map<String, Result> results, Map<String, Result> baseline, List<String> report) {
+        report.add(String.format("%-22s %-9s %12s %12s %9s  %s", "test case", "measure", "baseline", "current",
+                "change", "verdict"));
+        Map<String, List<String>> regressionsByClass = new TreeMap<>();
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            String testCase = entry.getKey();
+            String instanceClass = testCase.substring(0, testCase.lastIndexOf('/'));
+            regressionsByClass.putIfAbsent(instanceClass, new ArrayList<>());
+            Result current = entry.getValue(), base = baseline.get(testCase);
+            if (base == null) {
+                report.add(String.format("%-22s no baseline", testCase));
+                continue;
+            }
+            for (String measure : COST_MEASURES) {
+                double baseMean = base.getMean(measure), mean = current.getMean(measure);
+                double standardError = Math.sqrt(Math.pow(base.getStdDev(measure), 2) / base.repetitions
+                        + Math.pow(current.getStdDev(measure), 2) / current.repetitions);
+                double tolerance = Math.max(TOLERANCE_SIGMAS * standardError, MIN_RELATIVE_TOLERANCE * baseMean);
+                String verdict = mean > baseMean + tolerance ? "REGRESSION" : mean < baseMean - tolerance ? "improved" : "ok";
+                addReportLine(report, testCase, measure, baseMean, mean, verdict, regressionsByClass.get(instanceClass));
+            }
+            addReportLine(report, testCase, "vehicles", base.numVehicles, current.numVehicles,
+                    getQualityVerdict(base.numVehicles, current.numVehicles, 0), regressionsByClass.get(instanceClass));
+            addReportLine(report, testCase, "distance", base.distance, current.distance,
+                    getQualityVerdict(base.distance, current.distance, DISTANCE_TOLERANCE * base.distance),
+                    regressionsByClass.get(instanceClass));
+        }
+
+        report.add("");
+        boolean regression = false;
+        for (Map.Entry<String, List<String>> entry : regressionsByClass.entrySet()) {
+            List<String> regressions = entry.getValue();
+            report.add(String.format("%-10s %s", entry.getKey(),
+                    regressions.isEmpty() ? "ok" : "REGRESSION: " + String.join(", ", regressions)));
+            regression |= !regressions.isEmpty();
+        }
+        return regression;
+    }
+
+    static String getQualityVerdict(double baseValue, double value, double tolerance) {
+        return value > baseValue + tolerance ? "REGRESSION" : value < baseValue - tolerance ? "improved" : "ok";
+    }
+
+    static void addReportLine(List<String> report, String testCase, String measure, double baseValue, double value,
+                              String verdict, List<String> classRegressions) {
+        double change = baseValue == 0 ? 0 : 100 * (value - baseValue) / baseValue;
+        report.add(String.format(Locale.ROOT, "%-22s %-9s %12.3f %12.3f %+8.1f%%  %s", testCase, measure, baseValue,
+                value, change, verdict));
+        if (verdict.equals("REGRESSION")) classRegressions.add(testCase.substring(testCase.lastIndexOf('/') + 1) + " " + measure);
+    }
+
+    /**
+     * Baseline format: 1 line per test case,
+     * "<test case> <# repetitions> <# vehicles> <distance> (<mean> <standard deviation>) for each cost measure".
+     */
+    static void writeBaseline(Map<String, Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# test_case repetitions vehicles distance " + String.join(" ",
+                Arrays.stream(COST_MEASURES).map(m -> m + "_mean " + m + "_std").toArray(String[]::new)));
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s %d %d %.4f", entry.getKey(),
+                    result.repetitions, result.numVehicles, result.distance));
+            for (String measure : COST_MEASURES) {
+                line.append(String.format(Locale.ROOT, " %.4f %.4f", result.getMean(measure), result.getStdDev(measure)));
+            }
+            lines.add(line.toString());
+        }
+        Files.createDirectories(BASELINE_FILE.getParent());
+        Files.write(BASELINE_FILE, lines);
+    }
+
+    static Map<String, Result> readBaseline() throws IOException {
+        if (!Files.exists(BASELINE_FILE)) {
+            throw new IOException("No baseline file " + BASELINE_FILE + ", create it with --update");
+        }
+        Map<String, Result> baseline = new TreeMap<>();
+        for (String line : Files.readAllLines(BASELINE_FILE)) {
+            if (line.startsWith("#") || line.trim().isEmpty()) continue;
+            String[] values = line.trim().split("\\s+");
+            Result result = new Result(Integer.parseInt(values[1]));
+            result.numVehicles = Integer.parseInt(values[2]);
+            result.distance = Double.parseDouble(values[3]);
+            for (int m = 0; m < COST_MEASURES.length; m++) {
+                result.baselineStats.put(COST_MEASURES[m], new double[]{Double.parseDouble(values[4 + 2 * m]),
+                        Double.parseDouble(values[5 + 2 * m])});
+            }
+            baseline.put(values[0], result);
+        }
+        return baseline;
+    }
+
+    /**
+     * Measures of a test case: the value of each repetition for a run, or the mean and standard deviation
+     * for a baseline read from file.
+     */
+    static class Result {
+        final int repetitions;
+        final Map<String, double[]> measures = new HashMap<>();
+        final Map<String, double[]> baselineStats = new HashMap<>();  // {mean, standard deviation}
+        int numVehicles;
+        double distance;
+
+        Result(int repetitions) {
+            this.repetitions = repetitions;
+            for (String measure : COST_MEASURES) measures.put(measure, new double[repetitions]);
+        }
+
+        double getMean(String measure) {
+            if (baselineStats.containsKey(measure)) return baselineStats.get(measure)[0];
+            return Arrays.stream(measures.get(measure)).average().orElse(0);
+        }
+
+        /**
+         * Sample standard deviation (0 for a single repetition).
+         */
+        double getStdDev(String measure) {
+            if (baselineStats.containsKey(measure)) return baselineStats.get(measure)[1];
+            double[] values = measures.get(measure);
+            if (values.length < 2) return 0;
+            double mean = getMean(measure), sum = 0;
+            for (double value : values) sum += (value - mean) * (value - mean);
+            return Math.sqrt(sum / (values.length - 1));
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class Route {
@@ -8,12 +9,25 @@ public class Route {
     // Note that this time can be different from service time, since service time = max(arrival time, ready time)
     List<Double> arrivalTimes;
     Node depot;
-    // The total demand of all customers in the current trip
-    // A trip is defined as the first customer that leaves depot until coming back to the depot
+    // Trip index: trip t starts at the depot at position tripStarts[t] and ends at the next depot (tripStarts[t + 1]),
+    // the last trip starts at the last depot (empty, or open while customers are appended at the end of the route).
+    // tripLoads[t] is the total demand of the customers in trip t. Only the first numTripStarts entries are used.
     // If routedPath = [depot, c1, c2, c3, depot, c4, c5, depot]
     // and demand = [0, 1, 2, 1, 0, 2, 3, 0]
-    // Then vehicleLoadInCurTrip = [0, 4, 4, 4, 4, 5, 5, 5]
-    List<Integer> vehicleLoadInCurTrip;
+    // Then tripStarts = [0, 4, 7] and tripLoads = [4, 5, 0]
+    // The vehicle load at a position is the load of its trip, a depot belonging to the trip it ends.
+    int[] tripStarts, tripLoads;
+    int numTripStarts;
+    // Version stamp, unique across all routes: a new stamp is assigned whenever the route is modified.
+    // A deep copy keeps the stamp of the original route (same content), thus 2 routes with the same stamp
+    // are guaranteed to have the same path and arrival times.
+    long version;
+    static final AtomicLong versionCounter = new AtomicLong();
+    // Zobrist hash of the set of arcs in the route (XOR of the keys of all arcs, see getArcKey),
+    // updated incrementally by every modification
+    long arcHash;
+    // Order-sensitive fingerprint of the routed path, computed lazily for the version fingerprintVersion
+    long fingerprint, fingerprintVersion;
 
     /**
      * Initialize a route with only depot.
@@ -22,9 +36,10 @@ public class Route {
     public Route(DataModel dataModel) {
         this.dataModel = dataModel;
         this.depot = dataModel.getDepot();
-        this.vehicleLoadInCurTrip = new ArrayList<>(Arrays.asList(0));
         this.routedPath = new ArrayList<>(Arrays.asList(depot));
         this.arrivalTimes = new ArrayList<>(Arrays.asList(0.0));
+        initializeTripIndex();
+        markModified();
     }
 
     /**
@@ -36,23 +51,33 @@ public class Route {
         this.routedPath = new ArrayList<>(r.routedPath);
         this.arrivalTimes = new ArrayList<>(r.arrivalTimes);
         this.depot = r.depot;
-        this.vehicleLoadInCurTrip = new ArrayList<>(r.vehicleLoadInCurTrip);
+        this.tripStarts = Arrays.copyOf(r.tripStarts, r.tripStarts.length);
+        this.tripLoads = Arrays.copyOf(r.tripLoads, r.tripLoads.length);
+        this.numTripStarts = r.numTripStarts;
+        this.version = r.version;
+        this.arcHash = r.arcHash;
+        this.fingerprint = r.fingerprint;
+        this.fingerprintVersion = r.fingerprintVersion;
     }
 
     public Route(DataModel dataModel, Node seed) {
         this.dataModel = dataModel;
         depot = dataModel.getDepot();
-        vehicleLoadInCurTrip = new ArrayList<>(Arrays.asList(0, seed.demand, seed.demand));
         routedPath = new ArrayList<>(Arrays.asList(depot, seed, depot));
+        initializeTripIndex();
         initializeArrivalTimes(routedPath, routedPath.get(0).readyTime);
+        arcHash = computeArcHash();
+        markModified();
     }
 
     public Route(DataModel dataModel, Node seed, double departureTimeFromDepot) {
         this.dataModel = dataModel;
         depot = dataModel.getDepot();
-        vehicleLoadInCurTrip = new ArrayList<>(Arrays.asList(0, seed.demand, seed.demand));
         routedPath = new ArrayList<>(Arrays.asList(depot, seed, depot));
+        initializeTripIndex();
         initializeArrivalTimes(routedPath, departureTimeFromDepot);
+        arcHash = computeArcHash();
+        markModified();
     }
 
     /**
@@ -72,30 +97,150 @@ public class Route {
      * To be called only when the routedPath is set and checked (valid routedPath).
      */
     public void initializeVariables() {
-        initializeVehicleLoad();
+        initializeTripIndex();
         initializeArrivalTimes(routedPath, 0);
+        arcHash = computeArcHash();
+        markModified();
     }
 
     /**
-     * Initialize vehicle load in current route.
+     * Assign a new version stamp to the route.
+     * To be called after every modification of the routedPath or the arrival times.
+     */
+    void markModified() {
+        version = versionCounter.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Random key of the arc (u, v) for Zobrist hashing, 0 for an arc between 2 depots
+     * so that adding or removing dummy depots does not change the hash.
+     * Keys are derived from the node ids with the SplitMix64 finalizer (no table of n^2 keys).
+     */
+    static long getArcKey(Node u, Node v) {
+        if (u.id == 0 && v.id == 0) return 0;
+        long z = ((long) u.id << 32 | v.id) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long computeArcHash() {
+        long hash = 0;
+        for (int i = 1; i < routedPath.size(); i++) hash ^= getArcKey(routedPath.get(i - 1), routedPath.get(i));
+        return hash;
+    }
+
+    public long getArcHash() {
+        return arcHash;
+    }
+
+    /**
+     * Fingerprint of the sequence of nodes (polynomial hash of the ids), computed at most once per version.
+     */
+    public long getFingerprint() {
+        if (fingerprintVersion != version) {
+            long hash = 0;
+            for (Node u : routedPath) hash = hash * 0x100000001B3L + u.id + 1;
+            fingerprint = hash;
+            fingerprintVersion = version;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Build the trip index (start of each trip and its load) from the routedPath.
      * This should only be called once the routedPath is set
      */
-    void initializeVehicleLoad() {
-        // Initialize vehicle load in each trip
-        vehicleLoadInCurTrip = new ArrayList<>(Collections.nCopies(routedPath.size(), 0));
-
-        int lastDepotIdx = 0, curIdx = 1, loadSum = 0;
-        while (curIdx < vehicleLoadInCurTrip.size()) {
-            if (routedPath.get(curIdx) == depot) {
-                for (int i = lastDepotIdx + 1; i <= curIdx; i++)
-                    vehicleLoadInCurTrip.set(i, loadSum);
-                lastDepotIdx = curIdx;
-                loadSum = 0;
-            } else {
-                loadSum += routedPath.get(curIdx).demand;
-            }
-            curIdx++;
+    void initializeTripIndex() {
+        tripStarts = new int[Math.max(4, routedPath.size() / 2)];
+        tripLoads = new int[tripStarts.length];
+        numTripStarts = 0;
+        for (int p = 0; p < routedPath.size(); p++) {
+            Node u = routedPath.get(p);
+            if (u == depot) insertTripStart(numTripStarts, p, 0);
+            else tripLoads[numTripStarts - 1] += u.demand;
+        }
+    }
+
+    /**
+     * Insert a trip start at index t of the trip index, the following trip starts are moved by 1.
+     */
+    void insertTripStart(int t, int position, int load) {
+        if (numTripStarts == tripStarts.length) {
+            tripStarts = Arrays.copyOf(tripStarts, 2 * numTripStarts);
+            tripLoads = Arrays.copyOf(tripLoads, 2 * numTripStarts);
+        }
+        System.arraycopy(tripStarts, t, tripStarts, t + 1, numTripStarts - t);
+        System.arraycopy(tripLoads, t, tripLoads, t + 1, numTripStarts - t);
+        tripStarts[t] = position;
+        tripLoads[t] = load;
+        numTripStarts++;
+    }
+
+    void removeTripStart(int t) {
+        System.arraycopy(tripStarts, t + 1, tripStarts, t, numTripStarts - t - 1);
+        System.arraycopy(tripLoads, t + 1, tripLoads, t, numTripStarts - t - 1);
+        numTripStarts--;
+    }
+
+    /**
+     * Shift the positions of the trips after trip t (a node was inserted or removed in trip t).
+     */
+    void shiftTripStarts(int t, int delta) {
+        for (int k = t + 1; k < numTripStarts; k++) tripStarts[k] += delta;
+    }
+
+    /**
+     * Index of the trip containing position p > 0 (a depot belongs to the trip it ends),
+     * i.e. the last trip starting before p (binary search).
+     */
+    int getTripIndexAt(int p) {
+        int lo = 0, hi = numTripStarts - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (tripStarts[mid] < p) lo = mid;
+            else hi = mid - 1;
         }
+        return lo;
+    }
+
+    /**
+     * # trips, including empty trips (consecutive depots) and the trip being appended at the end of the route.
+     */
+    public int getNumTrips() {
+        return routedPath.get(routedPath.size() - 1) == depot ? numTripStarts - 1 : numTripStarts;
+    }
+
+    // Position of the depot where trip t starts
+    int getTripStart(int t) {
+        return tripStarts[t];
+    }
+
+    // Position of the last node of trip t (the depot ending it, unless the trip is open)
+    int getTripEnd(int t) {
+        return t + 1 < numTripStarts ? tripStarts[t + 1] : routedPath.size() - 1;
+    }
+
+    public int getTripLoad(int t) {
+        return tripLoads[t];
+    }
+
+    /**
+     * Load of the last trip, the one extended by appendAtLastPosition (0 if the route ends with a depot).
+     */
+    public int getLastTripLoad() {
+        return tripLoads[numTripStarts - 1];
+    }
+
+    /**
+     * Duration of trip t: from the departure from the depot to the arrival at its last node.
+     */
+    public double getTripDuration(int t) {
+        return getArrivalTimeAt(getTripEnd(t)) - getStartingServiceTimeAt(getTripStart(t)) - depot.serviceTime;
     }
 
     /**
@@ -107,11 +252,16 @@ public class Route {
         this.depot = dataModel.getDepot();
         this.routedPath = routedPath;
         initializeArrivalTimes(routedPath, 0);
-        initializeVehicleLoad();
+        initializeTripIndex();
+        arcHash = computeArcHash();
+        markModified();
     }
 
+    /**
+     * Vehicle load of the trip containing position p (0 at the first depot).
+     */
     public int getVehicleLoadCurTrip(int p) {
-        return vehicleLoadInCurTrip.get(p);
+        return p == 0 ? 0 : tripLoads[getTripIndexAt(p)];
     }
 
     /**
@@ -121,18 +271,17 @@ public class Route {
      * (arrival time at each customer is before due time).
      */
     void initializeArrivalTimes(List<Node> routedPath, double departureTimeFromDepot) {
-        arrivalTimes = new ArrayList<>();
-        for (int i = 0; i < routedPath.size(); i++) {
-            Double arrivalTime = null;
-            if (i == 0) {
-                arrivalTime = departureTimeFromDepot;  // Depot
-            } else {
-                double previousCustomerServiceTime = Math.max(arrivalTimes.get(i - 1), routedPath.get(i - 1).readyTime);
-                // arrival time = starting service time at previous node + service time + time travel
-                arrivalTime = previousCustomerServiceTime + routedPath.get(i - 1).serviceTime + dataModel.dist(routedPath.get(i - 1), routedPath.get(i));
-            }
-//            assert arrivalTime <= routedPath.get(i).dueTime;
+        arrivalTimes = new ArrayList<>(routedPath.size());
+        double arrivalTime = departureTimeFromDepot;  // Depot
+        arrivalTimes.add(arrivalTime);
+        int prev = routedPath.get(0).id;
+        for (int i = 1; i < routedPath.size(); i++) {
+            int cur = routedPath.get(i).id;
+            double previousCustomerServiceTime = Math.max(arrivalTime, dataModel.getReadyTime(prev));
+            // arrival time = starting service time at previous node + service time + time travel
+            arrivalTime = previousCustomerServiceTime + dataModel.getServiceTime(prev) + dataModel.dist(prev, cur);
             arrivalTimes.add(arrivalTime);
+            prev = cur;
         }
     }
 
@@ -143,21 +292,20 @@ public class Route {
      * @param u the new customer to be inserted
      */
     public void insertAtPosition(int p, Node u) {
-        int previousVehicleLoad = vehicleLoadInCurTrip.get(p);
+        arcHash ^= getArcKey(routedPath.get(p - 1), routedPath.get(p))
+                ^ getArcKey(routedPath.get(p - 1), u) ^ getArcKey(u, routedPath.get(p));
         routedPath.add(p, u);
-        vehicleLoadInCurTrip.add(p, previousVehicleLoad + u.demand);
 
-        // Update the vehicle load for other nodes in the trip
-        int idx = p - 1;
-        while (idx >= 0 && routedPath.get(idx) != depot) {
-            vehicleLoadInCurTrip.set(idx, previousVehicleLoad + u.demand);
-            idx--;
-        }
-        idx = p + 1;
-        while (idx < routedPath.size()) {
-            vehicleLoadInCurTrip.set(idx, previousVehicleLoad + u.demand);
-            if (routedPath.get(idx) == depot) break;  // add up to the next depot
-            idx++;
+        // Update the trip index
+        int t = getTripIndexAt(p);
+        shiftTripStarts(t, 1);
+        if (u == depot) {  // split trip t at p
+            int load = 0;
+            for (int i = tripStarts[t] + 1; i < p; i++) load += routedPath.get(i).demand;
+            insertTripStart(t + 1, p, tripLoads[t] - load);
+            tripLoads[t] = load;
+        } else {
+            tripLoads[t] += u.demand;
         }
 
         // update arrival time for all nodes after position p
@@ -168,6 +316,7 @@ public class Route {
             if (arrivalTimeAtI == arrivalTimes.get(i)) break;  // early termination
             arrivalTimes.set(i, arrivalTimeAtI);
         }
+        markModified();
     }
 
     public boolean canAppendAtLastPosition(Node u) {
@@ -181,39 +330,31 @@ public class Route {
      */
     public void appendAtLastPosition(Node u) {
         int length = getLength();
+        arcHash ^= getArcKey(routedPath.get(length - 1), u);
         routedPath.add(length, u);
-
-        int newVehicleLoad = vehicleLoadInCurTrip.get(length - 1) + u.demand;
-        vehicleLoadInCurTrip.add(length, newVehicleLoad);
-        int idx = length - 1;
-        while (idx >= 0 && routedPath.get(idx) != depot) {
-            vehicleLoadInCurTrip.set(idx, newVehicleLoad);
-            idx--;
-        }
+        if (u == depot) insertTripStart(numTripStarts, length, 0);
+        else tripLoads[numTripStarts - 1] += u.demand;
 
         double arrivalTimeAtU = getStartingServiceTimeAt(length - 1) + routedPath.get(length - 1).serviceTime + dataModel.dist(routedPath.get(length - 1), u);
         arrivalTimes.add(length, arrivalTimeAtU);
+        markModified();
     }
 
     public Node removeCustomerAtIndex(int p) {
+        arcHash ^= getArcKey(routedPath.get(p - 1), routedPath.get(p)) ^ getArcKey(routedPath.get(p), routedPath.get(p + 1))
+                ^ getArcKey(routedPath.get(p - 1), routedPath.get(p + 1));
         Node u = routedPath.remove(p);
-
-        int previousVehicleLoad = vehicleLoadInCurTrip.get(p);
-        vehicleLoadInCurTrip.remove(p);  // remove at index p
         arrivalTimes.remove(p);
 
-        // Update the vehicle load for other nodes in the trip
-        int idx = p - 1;
-        while (idx >= 0 && routedPath.get(idx) != depot) {
-            vehicleLoadInCurTrip.set(idx, previousVehicleLoad - u.demand);
-            idx--;
-        }
-        idx = p;
-        while (idx < routedPath.size()) {
-            vehicleLoadInCurTrip.set(idx, previousVehicleLoad - u.demand);
-            if (routedPath.get(idx) == depot) break;  // add up to the next depot
-            idx++;
+        // Update the trip index
+        int t = getTripIndexAt(p);
+        if (u == depot) {  // merge trip t and the trip starting at p
+            tripLoads[t] += tripLoads[t + 1];
+            removeTripStart(t + 1);
+        } else {
+            tripLoads[t] -= u.demand;
         }
+        shiftTripStarts(t, -1);
 
         // update arrival time for all nodes after u
         for (int i = p; i < arrivalTimes.size(); i++) {
@@ -222,6 +363,7 @@ public class Route {
             arrivalTimes.set(i, arrivalTimeAtI);
         }
 
+        markModified();
         return u;
     }
 
@@ -229,9 +371,11 @@ public class Route {
      * Add a dummy depot to the end of the route.
      */
     public void addDummyDepot() {
+        arcHash ^= getArcKey(routedPath.get(routedPath.size() - 1), depot);
         routedPath.add(routedPath.size(), depot);
         arrivalTimes.add(arrivalTimes.get(arrivalTimes.size() - 1));  // duplicate arrival time of last depot
-        vehicleLoadInCurTrip.add(0);
+        insertTripStart(numTripStarts, routedPath.size() - 1, 0);
+        markModified();
     }
 
     /**
@@ -241,30 +385,81 @@ public class Route {
         if (routedPath.get(routedPath.size() - 1) == depot && routedPath.get(routedPath.size() - 2) == depot) {
             routedPath.remove(routedPath.size() - 1);
             arrivalTimes.remove(arrivalTimes.size() - 1);
-            vehicleLoadInCurTrip.remove(vehicleLoadInCurTrip.size() - 1);
+            numTripStarts--;
+            markModified();
         }
     }
 
+    /**
+     * Remove the empty trips (a depot followed by another depot), in a single pass.
+     * The last depot of each sequence of depots is kept, with its arrival time.
+     */
     public void removeDuplicatedDepot() {
-        int p = 0;
-        while (p < routedPath.size() - 1) {
-            if (routedPath.get(p) == depot && routedPath.get(p + 1) == depot) {
-                routedPath.remove(p);
-                arrivalTimes.remove(p);
-                vehicleLoadInCurTrip.remove(p);
-            } else {
-                p++;
-            }
+        int length = routedPath.size(), newLength = 0;
+        for (int p = 0; p < length; p++) {
+            if (p < length - 1 && routedPath.get(p) == depot && routedPath.get(p + 1) == depot) continue;
+            routedPath.set(newLength, routedPath.get(p));
+            arrivalTimes.set(newLength, arrivalTimes.get(p));
+            newLength++;
         }
+        if (newLength == length) return;
+        routedPath.subList(newLength, length).clear();
+        arrivalTimes.subList(newLength, length).clear();
+        initializeTripIndex();
+        markModified();
     }
 
     public boolean canInsertCustomerAt(int p, Node u) {
         return checkCapacityConstraint(p, u.demand) && checkTimeConstraint(p, u);
     }
 
+    /**
+     * Check if it's feasible to insert the customer u at position p and remove the customers at positions q1 and q2
+     * (positions in the current route, -1 for none), without modifying the route.
+     * u is inserted before the node currently at p, p == getLength() makes u a new trip at the end of the route.
+     * The schedule is recomputed from the first modified position, until the starting service time at a node
+     * after all modifications is not later than the current one: the rest of the route is then feasible.
+     */
+    boolean canInsertAndRemoveCustomers(int p, Node u, int q1, int q2) {
+        int length = getLength(), capacity = dataModel.getVehicleCapacity();
+        // Capacity of the trip of u, the removed customers of the same trip free some capacity
+        int load = p < length ? tripLoads[getTripIndexAt(p)] + u.demand : u.demand;
+        if (p < length && q1 != -1 && getTripIndexAt(q1) == getTripIndexAt(p)) load -= routedPath.get(q1).demand;
+        if (p < length && q2 != -1 && getTripIndexAt(q2) == getTripIndexAt(p)) load -= routedPath.get(q2).demand;
+        if (load > capacity) return false;
+
+        int first = p, last = p;  // first and last modified positions
+        for (int q : new int[]{q1, q2}) {
+            if (q == -1) continue;
+            first = Math.min(first, q);
+            last = Math.max(last, q);
+        }
+        int prev = routedPath.get(first - 1).id;
+        double arrivalTime = arrivalTimes.get(first - 1), startingServiceTime = getStartingServiceTimeAt(first - 1);
+        for (int i = first; i < length; i++) {
+            if (i == p) {
+                arrivalTime = startingServiceTime + dataModel.getServiceTime(prev) + dataModel.dist(prev, u.id);
+                if (arrivalTime > dataModel.getDueTime(u.id)) return false;
+                startingServiceTime = Math.max(arrivalTime, dataModel.getReadyTime(u.id));
+                prev = u.id;
+            }
+            if (i == q1 || i == q2) continue;
+            int cur = routedPath.get(i).id;
+            arrivalTime = startingServiceTime + dataModel.getServiceTime(prev) + dataModel.dist(prev, cur);
+            if (arrivalTime > dataModel.getDueTime(cur)) return false;
+            startingServiceTime = Math.max(arrivalTime, dataModel.getReadyTime(cur));
+            if (i >= last && startingServiceTime <= getStartingServiceTimeAt(i)) return true;
+            prev = cur;
+        }
+        // New trip at the end of the route: arrival time at the last depot (after the removals)
+        return p < length || arrivalTime <= dataModel.getLatestDepartureTime(u);
+    }
+
     // Only need to check capacity when the removing customer is depot
     public boolean canRemoveCustomerAt(int p) {
-        return (routedPath.get(p) != depot) || (vehicleLoadInCurTrip.get(p) + vehicleLoadInCurTrip.get(p + 1) <= dataModel.getVehicleCapacity());
+        if (routedPath.get(p) != depot) return true;
+        int t = getTripIndexAt(p);  // trip ending at p, merged with trip t + 1
+        return tripLoads[t] + tripLoads[t + 1] <= dataModel.getVehicleCapacity();
     }
 
     /**
@@ -274,7 +469,7 @@ public class Route {
      * @return
      */
     public boolean checkCapacityConstraint(int p, int delta) {
-        return vehicleLoadInCurTrip.get(p) + delta <= dataModel.getVehicleCapacity();
+        return getVehicleLoadCurTrip(p) + delta <= dataModel.getVehicleCapacity();
     }
 
     /**
@@ -284,8 +479,9 @@ public class Route {
      */
     boolean checkTimeConstraint(int p, Node u) {
         // Time feasibility for customer u
-        double arrivalTimeCustomerU = getStartingServiceTimeAt(p - 1) + routedPath.get(p - 1).serviceTime + dataModel.dist(routedPath.get(p - 1), u);
-        if (arrivalTimeCustomerU > u.dueTime) return false;
+        int m = routedPath.get(p - 1).id;
+        double arrivalTimeCustomerU = getStartingServiceTimeAt(p - 1) + dataModel.getServiceTime(m) + dataModel.dist(m, u.id);
+        if (arrivalTimeCustomerU > dataModel.getDueTime(u.id)) return false;
 
         double pushForward = getPushForwardTimeAfterInsertion(u, p);
         return checkPushForwardTimeFromPosition(pushForward, p);
@@ -299,18 +495,21 @@ public class Route {
      */
     boolean checkPushForwardTimeFromPosition(double pushForward, int p) {
         // Check time window constraint at p
-        if (getStartingServiceTimeAt(p) + pushForward > routedPath.get(p).dueTime) return false;
+        int u = routedPath.get(p).id;
+        if (Math.max(arrivalTimes.get(p), dataModel.getReadyTime(u)) + pushForward > dataModel.getDueTime(u)) return false;
         // Check time window constraints at r > p
         for (int r = p + 1; r < routedPath.size(); r++) {
+            u = routedPath.get(r).id;
+            double arrivalTime = arrivalTimes.get(r);
             double prevPushForward = pushForward;
             // How long the truck has to wait at customer r (before insertion of u)
-            double waitingTimeAtR = Math.max(routedPath.get(r).readyTime - arrivalTimes.get(r), 0);
+            double waitingTimeAtR = Math.max(dataModel.getReadyTime(u) - arrivalTime, 0);
             pushForward = Math.max(0, prevPushForward - waitingTimeAtR);
 
             // All time window constraint after customer r will remains (satisfied)
             if (pushForward == 0) return true;
             // Check time window constraint at r
-            if (getStartingServiceTimeAt(r) + pushForward > routedPath.get(r).dueTime) return false;
+            if (Math.max(arrivalTime, dataModel.getReadyTime(u)) + pushForward > dataModel.getDueTime(u)) return false;
         }
         return true;
     }
@@ -321,13 +520,13 @@ public class Route {
      * -> Route after insertion: (i0, ..., i(p-1), u, ip, ..., i0)
      */
     double getPushForwardTimeAfterInsertion(Node u, int p) {
-        Node m = routedPath.get(p - 1), n = routedPath.get(p);
-        double arrivalTimeAtU = getStartingServiceTimeAt(p - 1) + m.serviceTime + dataModel.dist(m, u);
+        int m = routedPath.get(p - 1).id, n = routedPath.get(p).id;
+        double arrivalTimeAtU = getStartingServiceTimeAt(p - 1) + dataModel.getServiceTime(m) + dataModel.dist(m, u.id);
 //        assert !Utils.greaterThan(arrivalTimeAtU, u.dueTime);  // this time feasibility condition should be checked before
-        double startingServiceTimeAtU = Math.max(arrivalTimeAtU, u.readyTime);
+        double startingServiceTimeAtU = Math.max(arrivalTimeAtU, dataModel.getReadyTime(u.id));
         double oldStartingServiceTimeCustomerN = getStartingServiceTimeAt(p);
-        double newArrivalTimeCustomerN = startingServiceTimeAtU + u.serviceTime + dataModel.dist(u, n);
-        double newStartingServiceTimeCustomerN = Math.max(newArrivalTimeCustomerN, n.readyTime);
+        double newArrivalTimeCustomerN = startingServiceTimeAtU + dataModel.getServiceTime(u.id) + dataModel.dist(u.id, n);
+        double newStartingServiceTimeCustomerN = Math.max(newArrivalTimeCustomerN, dataModel.getReadyTime(n));
         double pushForward = newStartingServiceTimeCustomerN - oldStartingServiceTimeCustomerN;
         return pushForward;
     }
@@ -336,7 +535,7 @@ public class Route {
      * Return the starting service time at customer with index p in the routedPath
      */
     double getStartingServiceTimeAt(int p) {
-        return Math.max(arrivalTimes.get(p), routedPath.get(p).readyTime);
+        return Math.max(arrivalTimes.get(p), dataModel.getReadyTime(routedPath.get(p).id));
     }
 
     // Get the customer at position p
@@ -0,0 +1,285 @@
+import java.util.*;
+
+/**
+ * Route minimization heuristic with an ejection pool.
+ * Inspired by Nagata & Braysy, 2009, adapted for the multi-trip nature of MTVRPTW.
+ *
+ * Repeatedly remove the route with the fewest customers and push its customers into the ejection pool (EP).
+ * Then, until EP is empty, pop a customer v from EP (last in, first out) and try, in order:
+ *  1. Direct insertion: best feasible position w.r.t. push-forward time (same cost function as RelocateAlgorithm),
+ *     including a new trip at the end of a route.
+ *  2. Squeeze: make room for v in a route by relocating 1 of its customers into another route
+ *     (an ejection chain of length 2 that keeps every customer routed).
+ *  3. Ejection: insert v and eject up to MAX_EJECTED customers from the same route to restore feasibility.
+ *     The ejected customers are chosen to minimize the sum of their failure counters, then pushed into EP.
+ * The failure counter of v is increased every time v cannot be inserted by moves 1 and 2,
+ * thus customers that are hard to insert are less likely to be ejected later.
+ *
+ * If EP cannot be emptied within MAX_ITERATIONS insertions, the route removal is undone and the next smallest route
+ * is tried; the algorithm stops once MAX_FAILURES routes in a row cannot be removed.
+ *
+ * The moves are evaluated in place (Route.canInsertCustomerAt, Route.canInsertAndRemoveCustomers), without copying
+ * routes or paths. The routes are modified in place too: a route is only copied the first time a route removal
+ * modifies it (copy-on-write), the copies are put back if the removal is undone.
+ *
+ * Only the initial solution of the ILS is reduced (SolutionAlgorithm): a failed route removal costs up to
+ * MAX_ITERATIONS insertions with squeeze and ejection searches, far more than a Relocate of the whole solution,
+ * so the ILS keeps Relocate as its vehicle reduction step.
+ */
+public class RouteMinimizationAlgorithm {
+    static final int MAX_ITERATIONS = 1000;  // max # insertions to empty EP, for each route removal
+    static final int MAX_FAILURES = 3;  // max # failed route removals, for each removed route
+    static final int MAX_EJECTED = 2;
+
+    public static List<Route> run(List<Route> solution, DataModel dataModel) {
+        return run(solution, dataModel, new int[dataModel.getNumNodes()], MAX_ITERATIONS, MAX_FAILURES);
+    }
+
+    /**
+     * @param failureCounts failure counter of each customer (by id), updated
+     * @param maxIterations max # insertions to empty EP, for each route removal
+     * @param maxFailures max # failed route removals before giving up, for each removed route
+     * @return a solution with fewer vehicles, or a copy of the solution if no route can be removed
+     */
+    static List<Route> run(List<Route> solution, DataModel dataModel, int[] failureCounts, int maxIterations,
+                           int maxFailures) {
+        // Use deep copy so that we can modify routes without changing the original solution
+        List<Route> curSolution = Utils.deepCopySolution(solution);
+        while (removeSmallestRoute(curSolution, failureCounts, maxIterations, maxFailures, dataModel)) ;
+        assert Utils.isValidSolution(dataModel, curSolution);
+        return curSolution;
+    }
+
+    /**
+     * Remove one route of the solution, in place: the routes are tried in increasing order of # customers,
+     * until one is removed or maxFailures removals failed.
+     * @return true if a route is removed, else the solution is unchanged
+     */
+    static boolean removeSmallestRoute(List<Route> solution, int[] failureCounts, int maxIterations, int maxFailures,
+                                       DataModel dataModel) {
+        if (solution.size() <= 1) return false;
+        // A failed removal restores the solution, with the same route indices
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < solution.size(); i++) candidates.add(i);
+        candidates.sort(Comparator.comparingInt(i -> solution.get(i).getNumDemandNodes()));
+        for (int k = 0; k < Math.min(maxFailures, candidates.size()); k++) {
+            if (removeRoute(solution, solution.get(candidates.get(k)), failureCounts, maxIterations, dataModel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the route, and insert its customers into the other routes (ejection pool).
+     * @return true if the route is removed, else the solution is restored
+     */
+    static boolean removeRoute(List<Route> solution, Route removedRoute, int[] failureCounts, int maxIterations,
+                               DataModel dataModel) {
+        int removedIdx = solution.indexOf(removedRoute);
+        solution.remove(removedIdx);
+        Map<Route, Route> backups = new IdentityHashMap<>();  // copy of each modified route before its first modification
+        Deque<Node> ejectionPool = new ArrayDeque<>(removedRoute.getDemandNodes());
+
+        int numIterations = 0;
+        while (!ejectionPool.isEmpty() && numIterations++ < maxIterations) {
+            Node v = ejectionPool.pollLast();
+            if (insertBestPosition(solution, v, backups, dataModel) || squeeze(solution, v, backups, dataModel)) continue;
+            failureCounts[v.id]++;
+            if (!insertWithEjection(solution, v, failureCounts, ejectionPool, backups, dataModel)) {
+                ejectionPool.addLast(v);  // cannot insert v into any route, give up this route removal
+                break;
+            }
+        }
+        if (ejectionPool.isEmpty()) return true;
+
+        // Failed to remove the route, undo
+        backups.forEach((route, backup) -> solution.set(solution.indexOf(route), backup));
+        solution.add(removedIdx, removedRoute);
+        return false;
+    }
+
+    /**
+     * Copy the route before its first modification by the current route removal.
+     */
+    static void backup(Map<Route, Route> backups, Route r) {
+        backups.computeIfAbsent(r, Route::new);
+    }
+
+    /**
+     * Insert u into its best feasible position (minimum push-forward time), possibly as a new trip at the end of a route.
+     * @return true if u is inserted
+     */
+    static boolean insertBestPosition(List<Route> solution, Node u, Map<Route, Route> backups, DataModel dataModel) {
+        RoutePositionPair best = getBestPosition(solution, u, null, dataModel);
+        if (best == null) return false;
+        backup(backups, best.route);
+        insertAt(best.route, best.position, u, dataModel);
+        return true;
+    }
+
+    /**
+     * Find the best feasible position to insert u into (minimum push-forward time).
+     * @param excludedRoute a route not to be considered (can be null)
+     * @return the best route and position (position == length of the route means a new trip), or null if not feasible
+     */
+    static RoutePositionPair getBestPosition(List<Route> solution, Node u, Route excludedRoute, DataModel dataModel) {
+        double minCost = 1e9;
+        RoutePositionPair best = null;
+        for (Route r : solution) {
+            if (r == excludedRoute) continue;
+            for (int p = 1; p <= r.getLength(); p++) {
+                // Check if u can be inserted into position p of r
+                if ((p < r.getLength() && r.canInsertCustomerAt(p, u))
+                        || (p == r.getLength() && r.canAppendAtLastPosition(u))) {
+                    double cost = Utils.getPushForwardAfterRelocation(dataModel, u, r, p);
+                    if (cost < minCost) {
+                        minCost = cost;
+                        best = new RoutePositionPair(r, p);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    static void insertAt(Route r, int p, Node u, DataModel dataModel) {
+        if (p == r.getLength()) {  // make another trip
+            r.appendAtLastPosition(u);
+            r.appendAtLastPosition(dataModel.getDepot());
+        } else {
+            r.insertAtPosition(p, u);
+        }
+    }
+
+    /**
+     * Squeeze v into a route by relocating one customer w of this route into another route.
+     * Among all feasible (route, w) pairs, choose the one with minimum push-forward time at the new position of w.
+     * @return true if v is inserted
+     */
+    static boolean squeeze(List<Route> solution, Node v, Map<Route, Route> backups, DataModel dataModel) {
+        double minCost = 1e9;
+        Route bestRoute = null;
+        RoutePositionPair bestPositionW = null;
+        int bestQ = -1;
+        for (Route r : solution) {
+            for (int q = 1; q < r.getLength() - 1; q++) {
+                Node w = r.get(q);
+                if (w == dataModel.getDepot()) continue;
+                if (!canInsertWithout(r, v, q)) continue;
+                RoutePositionPair positionW = getBestPosition(solution, w, r, dataModel);
+                if (positionW == null) continue;
+                double cost = Utils.getPushForwardAfterRelocation(dataModel, w, positionW.route, positionW.position);
+                if (cost < minCost) {
+                    minCost = cost;
+                    bestRoute = r;
+                    bestPositionW = positionW;
+                    bestQ = q;
+                }
+            }
+        }
+        if (bestRoute == null) return false;
+        backup(backups, bestRoute);
+        backup(backups, bestPositionW.route);
+        Node w = bestRoute.removeCustomerAtIndex(bestQ);
+        insertAt(bestPositionW.route, bestPositionW.position, w, dataModel);
+        // w is relocated in any case, v only fails to fit if rounding differs at a time window bound
+        return insertBestPosition(Collections.singletonList(bestRoute), v, backups, dataModel);
+    }
+
+    /**
+     * @return true if v can be inserted into r (at any position, or as a new trip) once the customer at q is removed
+     */
+    static boolean canInsertWithout(Route r, Node v, int q) {
+        for (int p = 1; p <= r.getLength(); p++) {
+            if (r.canInsertAndRemoveCustomers(p, v, q, -1)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Insert v into a route and eject at most MAX_EJECTED customers (other than v) from this route
+     * so that the route becomes feasible. The ejection with the minimum sum of failure counters is chosen,
+     * ejecting fewer customers breaks ties.
+     * Single ejections are evaluated first: their best sum bounds the search for larger ejections.
+     * The ejected customers are pushed into the ejection pool.
+     * @return true if v is inserted
+     */
+    static boolean insertWithEjection(List<Route> solution, Node v, int[] failureCounts, Deque<Node> ejectionPool,
+                                      Map<Route, Route> backups, DataModel dataModel) {
+        Ejection best = null;
+        for (int numEjected = 1; numEjected <= MAX_EJECTED; numEjected++) {
+            for (Route r : solution) {
+                for (int p = 1; p < r.getLength(); p++) {
+                    Ejection ejection = getBestEjection(r, v, p, numEjected, failureCounts,
+                            best == null ? Long.MAX_VALUE : best.sumFailureCounts, dataModel);
+                    if (ejection != null) best = ejection;
+                }
+            }
+        }
+        if (best == null) return false;
+        backup(backups, best.route);
+        best.route.insertAtPosition(best.position, v);
+        // Positions after the insertion, eject the last one first so that the other one does not move
+        for (int i = best.ejectedPositions.length - 1; i >= 0; i--) {
+            int q = best.ejectedPositions[i];
+            best.route.removeCustomerAtIndex(q >= best.position ? q + 1 : q);
+        }
+        best.ejected.forEach(ejectionPool::addLast);
+        return true;
+    }
+
+    /**
+     * Find the best way to insert v at position p of r and eject exactly numEjected other customers of r
+     * to make it feasible, with sum of failure counters less than upperBound.
+     * @return the best ejection (route, positions, ejected customers), or null if not found
+     */
+    static Ejection getBestEjection(Route r, Node v, int p, int numEjected, int[] failureCounts, long upperBound,
+                                    DataModel dataModel) {
+        Node depot = dataModel.getDepot();
+        // Positions of customers that can be ejected
+        List<Integer> candidates = new ArrayList<>();
+        for (int q = 1; q < r.getLength() - 1; q++) {
+            if (r.get(q) != depot) candidates.add(q);
+        }
+        Ejection best = null;
+        for (int a = 0; a < candidates.size(); a++) {
+            int q1 = candidates.get(a);
+            Node w1 = r.get(q1);
+            if (failureCounts[w1.id] >= upperBound) continue;
+            if (numEjected == 1) {
+                if (r.canInsertAndRemoveCustomers(p, v, q1, -1)) {
+                    upperBound = failureCounts[w1.id];
+                    best = new Ejection(r, p, new int[]{q1}, Collections.singletonList(w1), upperBound);
+                }
+                continue;
+            }
+            for (int b = a + 1; b < candidates.size(); b++) {
+                int q2 = candidates.get(b);
+                Node w2 = r.get(q2);
+                if (failureCounts[w1.id] + failureCounts[w2.id] >= upperBound) continue;
+                if (r.canInsertAndRemoveCustomers(p, v, q1, q2)) {
+                    upperBound = failureCounts[w1.id] + failureCounts[w2.id];
+                    best = new Ejection(r, p, new int[]{q1, q2}, Arrays.asList(w1, w2), upperBound);
+                }
+            }
+        }
+        return best;
+    }
+
+    static class Ejection {
+        Route route;
+        int position;  // insertion position of v
+        int[] ejectedPositions;  // in increasing order, positions before the insertion
+        List<Node> ejected;
+        long sumFailureCounts;
+
+        Ejection(Route route, int position, int[] ejectedPositions, List<Node> ejected, long sumFailureCounts) {
+            this.route = route;
+            this.position = position;
+            this.ejectedPositions = ejectedPositions;
+            this.ejected = ejected;
+            this.sumFailureCounts = sumFailureCounts;
+        }
+    }
+}
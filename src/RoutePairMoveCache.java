@@ -0,0 +1,85 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Cache of the best move of a route-pair operator (e.g. 2-opt*) for each pair of routes.
+ * Moves are keyed by the version stamps of both routes: since a route gets a new version whenever it is modified,
+ * only pairs with a changed route are re-evaluated.
+ *
+ * The cache can be accessed concurrently (the evaluation of a pair must not modify the routes).
+ */
+class RoutePairMoveCache {
+    Map<VersionPair, RoutePairMove> moves = new ConcurrentHashMap<>();
+    LongAdder numHits = new LongAdder(), numEvaluations = new LongAdder();
+
+    /**
+     * Get the best move between r1 and r2, evaluate it only if either route changed since the last evaluation.
+     * @param evaluate evaluate the best move between 2 routes, must not modify the routes
+     */
+    RoutePairMove get(Route r1, Route r2, BiFunction<Route, Route, RoutePairMove> evaluate) {
+        VersionPair key = new VersionPair(r1.version, r2.version);
+        RoutePairMove move = moves.get(key);
+        if (move != null) {
+            numHits.increment();
+            return move;
+        }
+        numEvaluations.increment();
+        move = evaluate.apply(r1, r2);
+        moves.put(key, move);
+        return move;
+    }
+
+    /**
+     * Discard all moves involving a route not in the current solution, to bound the size of the cache.
+     */
+    void retainOnly(Collection<Route> routes) {
+        Set<Long> versions = new HashSet<>();
+        routes.forEach(r -> versions.add(r.version));
+        moves.keySet().removeIf(key -> !versions.contains(key.version1) || !versions.contains(key.version2));
+    }
+
+    double getHitRate() {
+        long hits = numHits.sum(), total = hits + numEvaluations.sum();
+        return total == 0 ? 0 : 1.0 * hits / total;
+    }
+
+    static class VersionPair {
+        final long version1, version2;
+
+        VersionPair(long version1, long version2) {
+            this.version1 = version1;
+            this.version2 = version2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version1) * 31 + Long.hashCode(version2);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof VersionPair)) return false;
+            VersionPair other = (VersionPair) o;
+            return version1 == other.version1 && version2 == other.version2;
+        }
+    }
+}
+
+/**
+ * The best move found by a route-pair operator between 2 routes (in the given versions).
+ * The move is encoded by the operator (e.g. positions in both routes), or null if there is no feasible move.
+ */
+class RoutePairMove {
+    final long version1, version2;
+    final int[] move;
+    final double cost;
+
+    public RoutePairMove(Route r1, Route r2, int[] move, double cost) {
+        version1 = r1.version;
+        version2 = r2.version;
+        this.move = move;
+        this.cost = cost;
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Scaling benchmark: solve synthetic test cases (InstanceGenerator) of increasing sizes and measure each phase
+ * of the solution algorithm separately, to find which phase becomes super-linear first.
+ *
+ * Phases (each one from the output of MT-Solomon, except for loading and ClusterRouteMergeDFS):
+ *  - load: read the test case and build the distance store (DataModel)
+ *  - mtSolomon: construction of the initial solution (MTSolomonAlgorithm)
+ *  - clusterRouteMergeDFS: alternative construction (ClusterRouteMergeDFS)
+ *  - routeMinimization: RouteMinimizationAlgorithm
+ *  - ils: 1 run of the ILS (SolutionAlgorithm.runWithNumExchanges) with a budget of ILS_ITERATIONS iterations
+ *  - distanceOptimization: distance improvement phase of SolutionAlgorithm
+ * For each phase: runtime, peak heap usage (all heap pools, the heap is collected before each phase),
+ * bytes allocated by the benchmark thread and allocation rate. All phases are single-threaded.
+ *
+ * All phases are run once on a small test case before the measures, so that the hot methods are compiled.
+ * A phase is skipped at a size (and all larger sizes) when its runtime, extrapolated from the smaller sizes,
+ * exceeds PHASE_TIME_BUDGET.
+ * Runtimes are then fitted with a power law t = a * n^b (least squares in log-log scale), and the local exponent
+ * between consecutive sizes tells where a phase becomes super-linear (exponent > SUPER_LINEAR_EXPONENT).
+ *
+ * Usage: java ScalingBenchmark [test set] [sizes...], e.g. java -Xmx8g ScalingBenchmark R1 1000 2000 5000 10000
+ * Results are written to output/scaling/<test set>.csv and output/scaling/<test set>_fit.txt.
+ */
+public class ScalingBenchmark {
+    static final int[] DEFAULT_SIZES = {1000, 2000, 5000, 10000, 20000, 50000};
+    static final String[] PHASES = {"load", "mtSolomon", "clusterRouteMergeDFS", "routeMinimization", "ils",
+            "distanceOptimization"};
+    static final int WARM_UP_SIZE = 200;  // all phases are run once at this size first, not recorded (JIT compilation)
+    static final int ILS_ITERATIONS = 100;
+    static final double PHASE_TIME_BUDGET = 1800;  // seconds
+    static final double SUPER_LINEAR_EXPONENT = 1.2;
+    static final long SEED = 0;
+    static final Logger logger = Logger.getLogger(ScalingBenchmark.class.getName());
+
+    String testSet;
+    int[] sizes;
+    // Results by phase, then by size index (NaN if the phase is skipped)
+    Map<String, double[]> runtimes = new LinkedHashMap<>(), peakHeaps = new LinkedHashMap<>(),
+            allocatedBytes = new LinkedHashMap<>();
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    ScalingBenchmark(String testSet, int[] sizes) {
+        this.testSet = testSet;
+        this.sizes = sizes;
+        for (String phase : PHASES) {
+            for (Map<String, double[]> results : Arrays.asList(runtimes, peakHeaps, allocatedBytes)) {
+                double[] values = new double[sizes.length];
+                Arrays.fill(values, Double.NaN);
+                results.put(phase, values);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String testSet = args.length > 0 ? args[0] : "R1";
+        int[] sizes = args.length > 1 ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+        ScalingBenchmark benchmark = new ScalingBenchmark(testSet, sizes);
+        File outputDirectory = new File(System.getProperty("user.dir") + "/output/scaling");
+        if (!outputDirectory.exists() && !outputDirectory.mkdirs()) throw new IOException("Cannot create " + outputDirectory);
+        new ScalingBenchmark(testSet, new int[]{WARM_UP_SIZE}).run(0);
+        for (int s = 0; s < sizes.length; s++) {
+            benchmark.run(s);
+            benchmark.writeResults(new File(outputDirectory, testSet + ".csv"));  // keep partial results
+        }
+        String fit = benchmark.getFitSummary();
+        logger.info(fit);
+        try (FileWriter writer = new FileWriter(new File(outputDirectory, testSet + "_fit.txt"))) {
+            writer.write(fit);
+        }
+    }
+
+    /**
+     * Generate the test case of the s-th size and measure all phases.
+     */
+    void run(int s) throws IOException {
+        int numCustomers = sizes[s];
+        File file = File.createTempFile("scaling-" + testSet + "-" + numCustomers, ".TXT");
+        file.deleteOnExit();
+        new InstanceGenerator(numCustomers, SEED).write(file, testSet,
+                InstanceGenerator.getTestCaseName(testSet, numCustomers, 1));
+
+        DataModel dataModel = measure("load", s, () -> new DataModel(file.getPath(), numCustomers));
+        if (dataModel == null) return;
+        List<Route> constructedSolution = measure("mtSolomon", s, () -> new MTSolomonAlgorithm().run(dataModel));
+        measure("clusterRouteMergeDFS", s, () -> new ClusterRouteMergeDFS().run(dataModel));
+        if (constructedSolution != null) {
+            measure("routeMinimization", s, () -> RouteMinimizationAlgorithm.run(constructedSolution, dataModel));
+            List<Route> localOptimum = measure("ils", s, () -> runILS(constructedSolution, dataModel));
+            if (localOptimum != null) {
+                SolutionAlgorithm solutionAlgorithm = new SolutionAlgorithm();
+                solutionAlgorithm.dataModel = dataModel;
+                measure("distanceOptimization", s, () -> {
+                    solutionAlgorithm.optimizeDistance(localOptimum, dataModel);
+                    return localOptimum;
+                });
+            }
+        }
+        if (!file.delete()) logger.warning("Cannot delete " + file);
+    }
+
+    /**
+     * 1 run of the ILS (SolutionAlgorithm.runWithNumExchanges) with the first # exchanges, the lower bound target
+     * and a fixed budget of ILS_ITERATIONS iterations (the budget restarts after each reduction of # vehicles).
+     * @return the last local optimum
+     */
+    static List<Route> runILS(List<Route> initialSolution, DataModel dataModel) {
+        SolutionAlgorithm solutionAlgorithm = new SolutionAlgorithm();
+        solutionAlgorithm.dataModel = dataModel;
+        solutionAlgorithm.parallelStrongPerturbation = false;  // all phases are single-threaded
+        if (SolutionAlgorithm.LOWER_BOUND_TERMINATION) {
+            solutionAlgorithm.incumbent.setTargetNumVehicles(LowerBound.compute(dataModel));
+        }
+        solutionAlgorithm.recordNumVehicles(initialSolution);
+        List<List<Route>> localOptima = solutionAlgorithm.runWithNumExchanges(dataModel, initialSolution,
+                IterationControl.fixed(SolutionAlgorithm.numExchanges.get(0), ILS_ITERATIONS), null);
+        return localOptima.get(localOptima.size() - 1);
+    }
+
+    /**
+     * Run a phase at the s-th size and record its measures, unless it is expected to exceed the time budget.
+     * @return the output of the phase, null if skipped
+     */
+    <T> T measure(String phase, int s, Supplier<T> task) {
+        double expectedRuntime = extrapolate(runtimes.get(phase), s);
+        if (expectedRuntime > PHASE_TIME_BUDGET) {
+            logger.info(String.format("%d customers, %s: skipped (expected %.0fs)", sizes[s], phase, expectedRuntime));
+            return null;
+        }
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) heapPools.add(pool);
+        }
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+
+        T output = task.get();
+
+        double runtime = (System.nanoTime() - start) / 1e9;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) peakHeap += pool.getPeakUsage().getUsed();
+        runtimes.get(phase)[s] = runtime;
+        peakHeaps.get(phase)[s] = peakHeap;
+        allocatedBytes.get(phase)[s] = allocated;
+        logger.info(String.format("%d customers, %s: %.2fs, peak heap %.0f MB, allocated %.0f MB (%.0f MB/s)",
+                sizes[s], phase, runtime, peakHeap / 1e6, allocated / 1e6, allocated / 1e6 / runtime));
+        return output;
+    }
+
+    /**
+     * Expected runtime at the s-th size, from the runtimes at the 2 previous sizes (local power law, at least linear).
+     * A phase skipped at the previous size is skipped too.
+     */
+    double extrapolate(double[] values, int s) {
+        if (s == 0) return 0;
+        if (Double.isNaN(values[s - 1])) return Double.POSITIVE_INFINITY;
+        double exponent = s >= 2 && !Double.isNaN(values[s - 2])
+                ? Math.max(1, getLocalExponent(values, s - 1)) : 1;
+        return values[s - 1] * Math.pow((double) sizes[s] / sizes[s - 1], exponent);
+    }
+
+    /**
+     * Exponent b of the power law between the (s-1)-th and the s-th sizes.
+     */
+    double getLocalExponent(double[] values, int s) {
+        return Math.log(values[s] / values[s - 1]) / Math.log((double) sizes[s] / sizes[s - 1]);
+    }
+
+    void writeResults(File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("size,phase,runtime_s,peak_heap_mb,allocated_mb,allocation_rate_mb_s\n");
+            for (int s = 0; s < sizes.length; s++) {
+                for (String phase : PHASES) {
+                    double runtime = runtimes.get(phase)[s];
+                    if (Double.isNaN(runtime)) continue;
+                    double allocated = allocatedBytes.get(phase)[s] / 1e6;
+                    writer.write(String.format(Locale.ROOT, "%d,%s,%.3f,%.1f,%.1f,%.1f%n", sizes[s], phase, runtime,
+                            peakHeaps.get(phase)[s] / 1e6, allocated, allocated / runtime));
+                }
+            }
+        }
+    }
+
+    /**
+     * Power-law fit of the runtime of each phase over all sizes, local exponents between consecutive sizes,
+     * and the first phase to become super-linear.
+     */
+    String getFitSummary() {
+        StringBuilder summary = new StringBuilder("Scaling of " + testSet + ", runtime = a * n^b\n");
+        String firstSuperLinearPhase = null;
+        int firstSuperLinearSize = Integer.MAX_VALUE;
+        for (String phase : PHASES) {
+            double[] values = runtimes.get(phase);
+            List<Double> logSizes = new ArrayList<>(), logRuntimes = new ArrayList<>();
+            StringBuilder localExponents = new StringBuilder();
+            for (int s = 0; s < sizes.length; s++) {
+                if (Double.isNaN(values[s]) || values[s] <= 0) continue;
+                logSizes.add(Math.log(sizes[s]));
+                logRuntimes.add(Math.log(values[s]));
+                if (s == 0 || Double.isNaN(values[s - 1]) || values[s - 1] <= 0) continue;
+                double exponent = getLocalExponent(values, s);
+                localExponents.append(String.format(" %d->%d: %.2f", sizes[s - 1], sizes[s], exponent));
+                if (exponent > SUPER_LINEAR_EXPONENT && sizes[s] < firstSuperLinearSize) {
+                    firstSuperLinearSize = sizes[s];
+                    firstSuperLinearPhase = phase;
+                }
+            }
+            if (logSizes.size() < 2) {
+                summary.append(String.format("%-22s not enough sizes%n", phase));
+                continue;
+            }
+            double[] fit = fitLine(logSizes, logRuntimes);
+            summary.append(String.format("%-22s a = %.3g, b = %.2f, R^2 = %.3f, local b:%s%n",
+                    phase, Math.exp(fit[0]), fit[1], fit[2], localExponents));
+        }
+        summary.append(firstSuperLinearPhase == null ? "No phase is super-linear\n"
+                : String.format("First super-linear phase (b > %.1f): %s, at %d customers%n",
+                SUPER_LINEAR_EXPONENT, firstSuperLinearPhase, firstSuperLinearSize));
+        return summary.toString();
+    }
+
+    /**
+     * Least squares fit of y = intercept + slope * x.
+     * @return {intercept, slope, R^2}
+     */
+    static double[] fitLine(List<Double> x, List<Double> y) {
+        int n = x.size();
+        double meanX = x.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+        double meanY = y.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+        double sxy = 0, sxx = 0, syy = 0;
+        for (int i = 0; i < n; i++) {
+            sxy += (x.get(i) - meanX) * (y.get(i) - meanY);
+            sxx += (x.get(i) - meanX) * (x.get(i) - meanX);
+            syy += (y.get(i) - meanY) * (y.get(i) - meanY);
+        }
+        double slope = sxy / sxx, intercept = meanY - slope * meanX;
+        double r2 = syy == 0 ? 1 : sxy * sxy / (sxx * syy);
+        return new double[]{intercept, slope, r2};
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Best solution found by any of the searches running on the same test case
+ * (multi-start ILS, islands of IslandModelAlgorithm, # clusters of ClusterRouteMergeDFS).
+ *
+ * A solution is better if it has fewer vehicles, or the same # vehicles and a lower total distance.
+ * The incumbent is replaced with a compare-and-set loop (lock-free), reading it is a single volatile read,
+ * so searches can check it in their inner loops to prune: a search that cannot beat the incumbent # vehicles
+ * can stop early, and all searches stop once the incumbent reaches the target # vehicles (a lower bound).
+ */
+public class SharedIncumbent {
+    final AtomicReference<Entry> best = new AtomicReference<>();
+    volatile int targetNumVehicles = 0;  // stop all searches once reached, 0 if unknown
+
+    /**
+     * Offer a solution, replace the incumbent if the solution is better.
+     * @param solution the solution, copied if accepted (the caller keeps ownership)
+     * @return true if the solution is the new incumbent
+     */
+    boolean offer(DataModel dataModel, List<Route> solution) {
+        Entry cur = best.get();
+        if (cur != null && cur.numVehicles < solution.size()) return false;  // cheap rejection, no distance computation
+        Entry entry = new Entry(solution.size(), Utils.getTotalDistance(dataModel, solution), solution);
+        while (cur == null || entry.isBetterThan(cur)) {
+            if (entry.solution == solution) entry = new Entry(entry.numVehicles, entry.distance, Utils.deepCopySolution(solution));
+            if (best.compareAndSet(cur, entry)) return true;
+            cur = best.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return # vehicles of the incumbent, Integer.MAX_VALUE if there is none
+     */
+    int getNumVehicles() {
+        Entry cur = best.get();
+        return cur == null ? Integer.MAX_VALUE : cur.numVehicles;
+    }
+
+    /**
+     * @return the incumbent (must not be modified), or null if there is none
+     */
+    List<Route> getSolution() {
+        Entry cur = best.get();
+        return cur == null ? null : cur.solution;
+    }
+
+    void setTargetNumVehicles(int targetNumVehicles) {
+        this.targetNumVehicles = targetNumVehicles;
+    }
+
+    /**
+     * @return true if the incumbent # vehicles reaches the target, no search can improve it any more
+     */
+    boolean isTargetReached() {
+        return getNumVehicles() <= targetNumVehicles;
+    }
+
+    /**
+     * Immutable (# vehicles, distance, solution) triple, replaced as a whole.
+     */
+    static class Entry {
+        final int numVehicles;
+        final double distance;
+        final List<Route> solution;
+
+        Entry(int numVehicles, double distance, List<Route> solution) {
+            this.numVehicles = numVehicles;
+            this.distance = distance;
+            this.solution = solution;
+        }
+
+        boolean isBetterThan(Entry other) {
+            return numVehicles < other.numVehicles || (numVehicles == other.numVehicles && distance < other.distance);
+        }
+    }
+}
@@ -1,8 +1,9 @@
 import java.util.*;
+import java.util.logging.Logger;
 
 /**
  * Solution algorithm for the MTVRPTW.
- *  1. Initial solution construction (MT-Solomon)
+ *  1. Initial solution construction (MT-Solomon), then route minimization with an ejection pool
  *  2. While termination condition not met:
  *      While strong-perturbation condition not met:
  *          Local search: Or-opt, Relocate
@@ -17,30 +18,156 @@ import java.util.*;
  */
 public class SolutionAlgorithm implements ConstructionAlgorithm {
     DataModel dataModel;
+    RoutePairMoveCache twoOptStarCache = new RoutePairMoveCache();  // best 2-opt* move of each route pair
+    OrOptCache orOptCache = new OrOptCache();  // Or-opt result of each route sequence, null to disable
+    long seed = 0;  // seed of the random exchanges in weak-perturbation
+    boolean parallelStrongPerturbation = PARALLEL_STRONG_PERTURBATION && Runtime.getRuntime().availableProcessors() > 1;
+    Migration migration;  // set when running as an island of IslandModelAlgorithm
+    ConvergenceTrace trace;  // records the convergence of the ILS, null to disable
+    SharedIncumbent incumbent = new SharedIncumbent();  // shared with the other searches on the same test case
+    Checkpoint.Writer checkpointWriter;  // periodic checkpoints of run(), null to disable
+    Checkpoint resumeFrom;  // state to resume run() from, null to start from scratch
+    // State of run() saved in the checkpoints
+    int runIdx;
+    List<Route> initialSolution;
+    List<List<Route>> previousLocalOptima;
+    // Time to reach the best # vehicles, measured from startTime
+    long startTime = System.nanoTime(), timeToBestNumVehicles;
+    int bestNumVehicles = Integer.MAX_VALUE;
+    int numRevisitedLocalOptima;
 
     // Set parameters and constants
     static final List<Integer> numExchanges = new ArrayList<>(Arrays.asList(10, 100));  // use different # exchanges
     static final int iterationThreshold = 10000, weakPerturbationThreshold = 100;
     static final int numAttemptExchangeThreshold = 100000;
+    static final int targetReachedRounds = 30;  // # rounds of weak-perturbations once LowerBound is reached
+    // Evaluate 2-opt* moves of all route pairs concurrently (on multi-CPU hosts), in another order than strongPerturb
+    static final boolean PARALLEL_STRONG_PERTURBATION = false;
+    static final boolean ROUTE_MINIMIZATION = true;  // reduce # vehicles of the initial solution before ILS
+    static final boolean LOWER_BOUND_TERMINATION = true;  // stop the vehicle minimization once LowerBound is reached
+    static final boolean ADAPTIVE_ITERATION_CONTROL = false;  // experimental, worse distance, see IterationControl
+    static final int seenLocalOptimaCapacity = 10000;  // # most recent local optima remembered (by arc hash)
+    static final Logger logger = Logger.getLogger(SolutionAlgorithm.class.getName());
+
+    public SolutionAlgorithm() {
+    }
+
+    public SolutionAlgorithm(long seed) {
+        this.seed = seed;
+    }
 
     @Override
     public List<Route> run(DataModel dataModel) {
-        this.dataModel = dataModel;
-        List<Route> initialSolution = new MTSolomonAlgorithm().run(dataModel);
+        startTime = System.nanoTime();
+        Checkpoint checkpoint = resumeFrom;
+        List<List<Route>> localOptima;  // solutions found with ILS
+        int firstRunIdx = 0;
+        if (checkpoint == null) {
+            initialSolution = getInitialSolution(dataModel);
+            localOptima = new ArrayList<>();
+        } else {
+            resume(dataModel, checkpoint);
+            localOptima = checkpoint.previousLocalOptima;
+            firstRunIdx = checkpoint.runIdx;
+        }
+        previousLocalOptima = localOptima;
 
-        List<List<Route>> localOptima = new ArrayList<>();  // solutions found with ILS
         // Run the ILS algorithm with different number of exchanges - vehicle # optimization phase
-        numExchanges.forEach(nE -> localOptima.addAll(runWithNumExchanges(dataModel, initialSolution, nE)));
+        for (runIdx = firstRunIdx; runIdx < numExchanges.size(); runIdx++) {
+            if (runIdx > firstRunIdx && incumbent.isTargetReached()) break;  // # vehicles is minimal, skip other runs
+            localOptima.addAll(runWithNumExchanges(dataModel, initialSolution, numExchanges.get(runIdx),
+                    runIdx == firstRunIdx ? checkpoint : null));
+        }
+
+        List<Route> bestSolution = getBestSolution(localOptima);
+        logger.info(getSearchStats());
+        return bestSolution;
+    }
+
+    /**
+     * Statistics of the search of this run: revisited local optima, hit rates of the Or-opt and 2-opt* caches.
+     */
+    String getSearchStats() {
+        return numRevisitedLocalOptima + " revisited local optima, Or-opt cache hit rate "
+                + (orOptCache == null ? "n/a" : String.format("%.1f%%", 100 * orOptCache.getHitRate()))
+                + String.format(", 2-opt* cache hit rate %.1f%%", 100 * twoOptStarCache.getHitRate());
+    }
 
+    /**
+     * Restore the state of run() saved in the checkpoint (the run in progress is restored by runWithNumExchanges).
+     */
+    void resume(DataModel dataModel, Checkpoint checkpoint) {
+        this.dataModel = dataModel;
+        if (LOWER_BOUND_TERMINATION) incumbent.setTargetNumVehicles(LowerBound.compute(dataModel));
+        startTime -= checkpoint.elapsedTime;
+        timeToBestNumVehicles = checkpoint.timeToBestNumVehicles;
+        bestNumVehicles = checkpoint.bestNumVehicles;
+        numRevisitedLocalOptima = checkpoint.numRevisitedLocalOptima;
+        if (checkpoint.bestSolution != null) incumbent.offer(dataModel, checkpoint.bestSolution);
+        initialSolution = checkpoint.initialSolution;
+    }
+
+    /**
+     * Save the state of the run in progress, encoded on this thread and written by the checkpoint writer.
+     */
+    void saveCheckpoint(List<Route> solution, int numIteration, int iterationLimit, List<List<Route>> localOptima,
+                        Set<Long> seenLocalOptima, IterationControl control) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.seed = seed;
+        checkpoint.runIdx = runIdx;
+        checkpoint.elapsedTime = System.nanoTime() - startTime;
+        checkpoint.timeToBestNumVehicles = timeToBestNumVehicles;
+        checkpoint.bestNumVehicles = bestNumVehicles;
+        checkpoint.numRevisitedLocalOptima = numRevisitedLocalOptima;
+        checkpoint.initialSolution = initialSolution;
+        checkpoint.bestSolution = incumbent.getSolution();
+        checkpoint.previousLocalOptima = previousLocalOptima;
+        checkpoint.solution = solution;
+        checkpoint.numIteration = numIteration;
+        checkpoint.iterationLimit = iterationLimit;
+        checkpoint.localOptima = localOptima;
+        checkpoint.seenLocalOptima = seenLocalOptima.stream().mapToLong(Long::longValue).toArray();
+        checkpoint.saveControl(control);
+        checkpointWriter.submit(checkpoint.toBytes(dataModel));
+    }
+
+    /**
+     * Construct the initial solution of the ILS (MT-Solomon, then route minimization).
+     * The lower bound of the # vehicles is set as the target of the incumbent.
+     */
+    List<Route> getInitialSolution(DataModel dataModel) {
+        this.dataModel = dataModel;
+        if (LOWER_BOUND_TERMINATION) incumbent.setTargetNumVehicles(LowerBound.compute(dataModel));
+        List<Route> constructedSolution = new MTSolomonAlgorithm().run(dataModel);
+        recordNumVehicles(constructedSolution);
+        // No route can be removed once the lower bound is reached
+        List<Route> initialSolution = ROUTE_MINIMIZATION && !incumbent.isTargetReached()
+                ? RouteMinimizationAlgorithm.run(constructedSolution, dataModel) : constructedSolution;
+        recordNumVehicles(initialSolution);
+        trace(0, 0, initialSolution, ConvergenceTrace.Operator.CONSTRUCTION);
+        return initialSolution;
+    }
+
+    /**
+     * Distance improvement phase on the local optima with the least # vehicles.
+     * The phase is skipped if another search already found a solution with fewer vehicles (cannot win).
+     * @param localOptima local optima found by the ILS, modified by this method
+     * @return the solution with lowest total distance
+     */
+    List<Route> getBestSolution(List<List<Route>> localOptima) {
         // Different configurations might give different # vehicles, only keep solutions with least # vehicles
         int bestNumberOfVehicles = localOptima.stream().min(Comparator.comparingInt(List::size)).get().size();
         localOptima.removeIf(s -> s.size() > bestNumberOfVehicles);
 
-        localOptima.forEach(s -> optimizeDistance(s, dataModel));  // Distance improvement phase
+        if (bestNumberOfVehicles <= incumbent.getNumVehicles()) {
+            localOptima.forEach(s -> optimizeDistance(s, dataModel));  // Distance improvement phase
+        }
 
         // Get solution with lowest total distance
         List<Route> bestSolution = localOptima.stream().min(Comparator.comparingDouble(s -> Utils.getTotalDistance(dataModel, s))).get();
         bestSolution.forEach(Route::removeDuplicatedDepot);  // Remove dummy depots (not affect final result)
+        trace(0, 0, bestSolution, ConvergenceTrace.Operator.DISTANCE_OPTIMIZATION);
+        incumbent.offer(dataModel, bestSolution);
         return bestSolution;
     }
 
@@ -50,62 +177,148 @@ public class SolutionAlgorithm implements ConstructionAlgorithm {
      * Acceptance criteria: best neighborhood
      * Perturbation scheme: random exchange moves (once read intensificationThreshold, do perturbation)
      * If the algorithm is able to reduce the # vehicle by 1, reset the total iterationThreshold
+     * Local optima are remembered by the hash of their arcs: since the local search and the weak-perturbation are
+     * deterministic, revisiting a local optimum would repeat the same iterations, so we do strong-perturbation instead.
+     * Once the shared incumbent reaches its target # vehicles, # vehicles cannot be reduced any more:
+     * the vehicle minimization stops, only targetReachedRounds more rounds of weak-perturbations are run
+     * (without Relocate) to collect local optima for the distance improvement phase, and run() skips the runs
+     * with the other # exchanges. On the 100-customer cases where MT-Solomon already reaches the bound, this is
+     * about 9 times faster than the full budget, for a distance 1.3% worse on average (up to 5.8%).
+     * The budgets and the # exchanges are given by an IterationControl (fixed, or adaptive).
+     * The run also stops at the next strong-perturbation if the thread is interrupted.
      *
      * @param dataModel the problem test data
      * @param initialSolution
-     * @param numExchanges number of random exchange operators in weak-perturbation move
+     * @param numExchanges number of random exchange operators in weak-perturbation move (initial, if adaptive)
      * @return list of local optima solutions with same minimum number of vehicles
      */
     public List<List<Route>> runWithNumExchanges(DataModel dataModel, List<Route> initialSolution, int numExchanges) {
+        return runWithNumExchanges(dataModel, initialSolution, numExchanges, null);
+    }
+
+    /**
+     * @param checkpoint state to resume the run from, null to start from the initial solution
+     */
+    List<List<Route>> runWithNumExchanges(DataModel dataModel, List<Route> initialSolution, int numExchanges,
+                                          Checkpoint checkpoint) {
+        IterationControl control = ADAPTIVE_ITERATION_CONTROL
+                ? IterationControl.adaptive(dataModel, numExchanges) : IterationControl.fixed(numExchanges);
+        return runWithNumExchanges(dataModel, initialSolution, control, checkpoint);
+    }
+
+    /**
+     * @param control budgets and # exchanges of the run
+     */
+    List<List<Route>> runWithNumExchanges(DataModel dataModel, List<Route> initialSolution, IterationControl control,
+                                          Checkpoint checkpoint) {
+        int weakPerturbationThreshold = control.weakPerturbationThreshold;
         List<List<Route>> localOptima = new ArrayList<>();
         List<Route> solution = Utils.deepCopySolution(initialSolution);
+        Set<Long> seenLocalOptima = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > seenLocalOptimaCapacity;  // least recently seen
+            }
+        });
         // Termination conditions
-        int numIteration = 0;
+        int numIteration = 0, iterationLimit = control.iterationThreshold;
+        if (checkpoint != null) {
+            solution = checkpoint.solution;
+            numIteration = checkpoint.numIteration;
+            iterationLimit = checkpoint.iterationLimit;
+            localOptima.addAll(checkpoint.localOptima);
+            for (long hash : checkpoint.seenLocalOptima) seenLocalOptima.add(hash);
+            checkpoint.restoreControl(control);
+        }
         outerWhile:
-        while (numIteration < iterationThreshold) {
+        while (numIteration < iterationLimit) {
+            if (incumbent.isTargetReached()) {  // stop the vehicle minimization, collect a few more local optima
+                iterationLimit = Math.min(iterationLimit, numIteration + targetReachedRounds * weakPerturbationThreshold);
+            }
             int numWeakPerturbations = 0;
-            while (numWeakPerturbations++ < weakPerturbationThreshold && numIteration++ < iterationThreshold) {
+            while (numWeakPerturbations++ < weakPerturbationThreshold && numIteration++ < iterationLimit) {
                 // Subsidiary local search
-                solution = OrOptAlgorithm.run(solution, dataModel);
+                solution = OrOptAlgorithm.run(solution, dataModel, orOptCache);
+                trace(control.getNumExchanges(), numIteration, solution, ConvergenceTrace.Operator.OR_OPT);
+                if (!seenLocalOptima.add(Utils.getArcHash(solution))) {  // revisited, perform strong-perturbation now
+                    numRevisitedLocalOptima++;
+                    break;
+                }
                 localOptima.add(Utils.deepCopySolution(solution));  // Add to local optima list
-                List<Route> nextSolution = RelocateAlgorithm.run(solution, dataModel);
+                if (control.adaptive) control.recordLocalOptimum(solution.size(), Utils.getTotalDistance(dataModel, solution));
+                // Once the target # vehicles is reached, skip the Relocate, perturb the local optimum itself
+                List<Route> nextSolution = incumbent.isTargetReached() ? solution : RelocateAlgorithm.run(solution, dataModel);
 
                 if (nextSolution.size() < solution.size()) {  // reduce # vehicle, restart algorithm
                     solution = nextSolution;
+                    recordNumVehicles(solution);
+                    trace(control.getNumExchanges(), numIteration, solution, ConvergenceTrace.Operator.RELOCATE);
                     numIteration = 0;  // running up to iterationThreshold again
                     localOptima.clear();  // all previously stored local optima has higher # vehicles, discard
                     continue outerWhile;
-                } else {  // same # vehicles, perform weak-perturbation
-                    weakPerturb(nextSolution, numExchanges);
-                    solution = nextSolution;  // accept all
                 }
+                if (migration != null && numWeakPerturbations == weakPerturbationThreshold) {
+                    // Exchange solutions with other islands, adopt a solution with fewer vehicles if given one
+                    List<Route> immigrant = migration.migrate(solution, numIteration);
+                    if (immigrant != null && immigrant.size() < solution.size()) {
+                        solution = immigrant;
+                        recordNumVehicles(solution);
+                        trace(control.getNumExchanges(), numIteration, solution, ConvergenceTrace.Operator.MIGRATION);
+                        numIteration = 0;
+                        localOptima.clear();
+                        continue outerWhile;
+                    }
+                }
+                // Same # vehicles, perform weak-perturbation
+                weakPerturb(nextSolution, control.getNumExchanges(), control.numAttemptExchangeThreshold);
+                solution = nextSolution;  // accept all
             }
             // Perform strong-perturbation
-            strongPerturb(solution);
+            if (parallelStrongPerturbation) strongPerturbParallel(solution);
+            else strongPerturb(solution);
+            trace(control.getNumExchanges(), numIteration, solution, ConvergenceTrace.Operator.STRONG_PERTURBATION);
+            if (control.isStagnating()) break;
+            if (Thread.currentThread().isInterrupted()) break;  // stopped by the caller, e.g. another island failed
+            if (checkpointWriter != null && checkpointWriter.isDue()) {
+                saveCheckpoint(solution, numIteration, iterationLimit, localOptima, seenLocalOptima, control);
+            }
         }
+        if (localOptima.isEmpty()) localOptima.add(Utils.deepCopySolution(solution));  // all local optima revisited
 
         return localOptima;
     }
 
+    void trace(int numExchanges, int numIteration, List<Route> solution, ConvergenceTrace.Operator operator) {
+        if (trace == null) return;
+        trace.record(System.nanoTime() - startTime, numExchanges, numIteration, solution.size(),
+                Utils.getTotalDistance(dataModel, solution), operator);
+    }
+
+    void recordNumVehicles(List<Route> solution) {
+        if (solution.size() < bestNumVehicles) {
+            bestNumVehicles = solution.size();
+            timeToBestNumVehicles = System.nanoTime() - startTime;
+        }
+        incumbent.offer(dataModel, solution);
+    }
+
     /**
      * Optimize the total travelled distance of the solution.
      * We use a combination of Or-opt algorithm and Exchange algorithm.
      * Both algorithms use first-feasible move strategy.
+     * Each algorithm only re-examines the routes modified by the other one since its last run,
+     * the solution is local optimal once neither algorithm modifies any route.
      * @param solution
      * @param dataModel
      */
     void optimizeDistance(List<Route> solution, DataModel dataModel) {
-        double prevDistance = Utils.getTotalDistance(dataModel, solution);
-        boolean localOptimal = false;
-        while (!localOptimal) {
-            OrOptAlgorithm.optimizeDistance(solution, dataModel);
-            ExchangeAlgorithm.optimizeDistance(solution, dataModel);
-            double curDistance = Utils.getTotalDistance(dataModel, solution);
-            if (curDistance < prevDistance) {
-                prevDistance = curDistance;
-            } else {
-                localOptimal = true;
-            }
+        Collection<Route> orOptDirtyRoutes = new ArrayList<>(solution), exchangeDirtyRoutes = new HashSet<>(solution);
+        while (true) {
+            exchangeDirtyRoutes.addAll(OrOptAlgorithm.optimizeDistance(orOptDirtyRoutes, dataModel));
+            if (exchangeDirtyRoutes.isEmpty()) break;
+            orOptDirtyRoutes = ExchangeAlgorithm.optimizeDistance(solution, dataModel, exchangeDirtyRoutes);
+            exchangeDirtyRoutes.clear();
+            if (orOptDirtyRoutes.isEmpty()) break;
         }
     }
 
@@ -116,10 +329,17 @@ public class SolutionAlgorithm implements ConstructionAlgorithm {
      * @param numExchanges number of random exchanges
      */
     void weakPerturb(List<Route> s, int numExchanges) {
+        weakPerturb(s, numExchanges, numAttemptExchangeThreshold);
+    }
+
+    /**
+     * @param numAttempts maximum # attempted exchanges
+     */
+    void weakPerturb(List<Route> s, int numExchanges, int numAttempts) {
         int n = s.size();
-        Random random = new Random(0);
+        Random random = new Random(seed);
         int countIterations = 0, countExchanges = 0;
-        while (countExchanges < numExchanges && countIterations < numAttemptExchangeThreshold) {
+        while (countExchanges < numExchanges && countIterations < numAttempts) {
             countIterations++;
             int r1Idx = random.nextInt(n), r2Idx = random.nextInt(n);
             if (r1Idx == r2Idx) continue;
@@ -140,31 +360,73 @@ public class SolutionAlgorithm implements ConstructionAlgorithm {
     /**
      * Perturbation.
      * Here we use 2-opt* algorithm as the perturbation.
+     * The best 2-opt* move of each route pair is cached, only pairs with a modified route are re-evaluated.
      * @param s current solution
      */
     void strongPerturb(List<Route> s) {
         for (int r1Idx = 0; r1Idx < s.size() - 1; r1Idx++) {
             for (int r2Idx = r1Idx + 1; r2Idx < s.size(); r2Idx++) {
-                twoOptStar(s.get(r1Idx), s.get(r2Idx));
+                Route r1 = s.get(r1Idx), r2 = s.get(r2Idx);
+                RoutePairMove bestMove = twoOptStarCache.get(r1, r2, this::getBestTwoOptStarMove);
+                if (bestMove.move != null) {
+                    Utils.exchangeTwoOptStar(dataModel, r1, bestMove.move[0], r2, bestMove.move[1]);
+                }
             }
         }
+        twoOptStarCache.retainOnly(s);
     }
 
     /**
-     * Run 2-opt* exchange with the best-feasible scheme on 2 routes.
+     * Parallel version of the strong-perturbation (2-opt*).
+     * The route pairs are scheduled in rounds with the round-robin (circle) method: each round is a matching
+     * (no route appears in 2 pairs), and every pair appears in exactly 1 round.
+     * In each round, the best 2-opt* moves of all pairs are evaluated and applied concurrently, since they do not
+     * share any route. As in the sequential version, every route pair is considered once, on the routes
+     * as modified by the previous rounds.
+     * The result does not depend on the thread scheduling (deterministic for a fixed seed), but the pairs are applied
+     * in another order than in strongPerturb, so the search differs: it is off by default (PARALLEL_STRONG_PERTURBATION).
+     * @param s current solution
      */
-    void twoOptStar(Route r1, Route r2) {
+    void strongPerturbParallel(List<Route> s) {
+        // Circle method: fix the first route, rotate the others. Add a 'bye' (index -1) if the # routes is odd.
+        List<Integer> circle = new ArrayList<>();
+        for (int r = 0; r < s.size(); r++) circle.add(r);
+        if (circle.size() % 2 == 1) circle.add(-1);
+        int n = circle.size();
+        for (int round = 0; round < n - 1; round++) {
+            List<int[]> pairs = new ArrayList<>();
+            for (int k = 0; k < n / 2; k++) {
+                int a = circle.get(k), b = circle.get(n - 1 - k);
+                if (a != -1 && b != -1) pairs.add(new int[]{Math.min(a, b), Math.max(a, b)});
+            }
+            pairs.parallelStream().forEach(pair -> {
+                Route r1 = s.get(pair[0]), r2 = s.get(pair[1]);
+                RoutePairMove bestMove = twoOptStarCache.get(r1, r2, this::getBestTwoOptStarMove);
+                if (bestMove.move != null) {
+                    Utils.exchangeTwoOptStar(dataModel, r1, bestMove.move[0], r2, bestMove.move[1]);
+                }
+            });
+            circle.add(1, circle.remove(n - 1));  // rotate all but the first
+        }
+        twoOptStarCache.retainOnly(s);
+    }
+
+    /**
+     * Find the best 2-opt* exchange (best-feasible scheme) between 2 routes.
+     * @return the positions {p1, p2} of the best exchange, or a null move if no feasible exchange exists
+     */
+    RoutePairMove getBestTwoOptStarMove(Route r1, Route r2) {
         double minCost = 1e9;
         int bestP1 = -1, bestP2 = -1;
         int r1Load = 0, r2Load = 0;
         // Find the best 2-opt* exchange
         for (int p1 = 0; p1 < r1.getLength() - 1; p1++) {
-            Node a1 = r1.get(p1), b1 = r1.get(p1 + 1);
-            r1Load = a1 == dataModel.getDepot() ? 0 : r1Load + a1.demand;
+            int a1 = r1.get(p1).id, b1 = r1.get(p1 + 1).id;
+            r1Load = a1 == 0 ? 0 : r1Load + dataModel.getDemand(a1);  // reset at the depot
             for (int p2 = 0; p2 < r2.getLength() - 1; p2++) {
-                Node a2 = r2.get(p2), b2 = r2.get(p2 + 1);
-                if (a1 == dataModel.getDepot() && a2 == dataModel.getDepot()) continue;
-                r2Load = a2 == dataModel.getDepot() ? 0 : r2Load + a2.demand;
+                int a2 = r2.get(p2).id, b2 = r2.get(p2 + 1).id;
+                if (a1 == 0 && a2 == 0) continue;
+                r2Load = a2 == 0 ? 0 : r2Load + dataModel.getDemand(a2);
 
                 // check vehicle capacity
                 boolean checkCapacity = (r1Load + (r2.getVehicleLoadCurTrip(p2 + 1) - r2Load) <= dataModel.getVehicleCapacity())
@@ -173,10 +435,10 @@ public class SolutionAlgorithm implements ConstructionAlgorithm {
 
                 // check time feasibility
                 // Compute new arrival time at b1 and b2
-                double arrivalTimeB1 = r2.getStartingServiceTimeAt(p2) + a2.serviceTime + dataModel.dist(a2, b1);
-                double arrivalTimeB2 = r1.getStartingServiceTimeAt(p1) + a1.serviceTime + dataModel.dist(a1, b2);
-                double pushForwardB1 = Math.max(arrivalTimeB1, b1.readyTime) - r1.getStartingServiceTimeAt(p1 + 1);
-                double pushForwardB2 = Math.max(arrivalTimeB2, b2.readyTime) - r2.getStartingServiceTimeAt(p2 + 1);
+                double arrivalTimeB1 = r2.getStartingServiceTimeAt(p2) + dataModel.getServiceTime(a2) + dataModel.dist(a2, b1);
+                double arrivalTimeB2 = r1.getStartingServiceTimeAt(p1) + dataModel.getServiceTime(a1) + dataModel.dist(a1, b2);
+                double pushForwardB1 = Math.max(arrivalTimeB1, dataModel.getReadyTime(b1)) - r1.getStartingServiceTimeAt(p1 + 1);
+                double pushForwardB2 = Math.max(arrivalTimeB2, dataModel.getReadyTime(b2)) - r2.getStartingServiceTimeAt(p2 + 1);
                 boolean checkTime = r1.checkPushForwardTimeFromPosition(pushForwardB1, p1 + 1)
                         && r2.checkPushForwardTimeFromPosition(pushForwardB2, p2 + 1);
                 if (!checkTime) continue;
@@ -189,8 +451,19 @@ public class SolutionAlgorithm implements ConstructionAlgorithm {
                 }
             }
         }
-        if (bestP1 != -1) {
-            Utils.exchangeTwoOptStar(dataModel, r1, bestP1, r2, bestP2);
-        }
+        return new RoutePairMove(r1, r2, bestP1 == -1 ? null : new int[]{bestP1, bestP2}, minCost);
+    }
+
+    /**
+     * Cooperation between the ILS and other solvers running concurrently (see IslandModelAlgorithm).
+     */
+    interface Migration {
+        /**
+         * Called every weakPerturbationThreshold iterations with the current local optimum.
+         * @param solution current local optimum, must not be modified
+         * @param numIterationsWithoutImprovement # iterations since the last reduction of # vehicles
+         * @return a solution with fewer vehicles to continue from (owned by the caller), or null
+         */
+        List<Route> migrate(List<Route> solution, int numIterationsWithoutImprovement);
     }
 }
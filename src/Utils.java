@@ -56,32 +56,32 @@ public class Utils {
      * Check if we can exchange 2 nodes at position p1, p2 in route r1, r2
      */
     public static boolean checkExchangeOperator(DataModel dataModel, Route r1, int p1, Route r2, int p2) {
-        Node u1 = r1.get(p1);
-        Node u2 = r2.get(p2);
+        int u1 = r1.get(p1).id;
+        int u2 = r2.get(p2).id;
 
         // Check capacity constraint
-        if (!r1.checkCapacityConstraint(p1, u2.demand - u1.demand)
-                || !r2.checkCapacityConstraint(p2, u1.demand - u2.demand)) {
+        if (!r1.checkCapacityConstraint(p1, dataModel.getDemand(u2) - dataModel.getDemand(u1))
+                || !r2.checkCapacityConstraint(p2, dataModel.getDemand(u1) - dataModel.getDemand(u2))) {
             return false;
         }
 
         // Check time constraint
-        Node prev1 = r1.get(p1 - 1), next1 = r1.get(p1 + 1);
-        Node prev2 = r2.get(p2 - 1), next2 = r2.get(p2 + 1);
+        int prev1 = r1.get(p1 - 1).id, next1 = r1.get(p1 + 1).id;
+        int prev2 = r2.get(p2 - 1).id, next2 = r2.get(p2 + 1).id;
 
         // Check route r1
-        double newArrivalTimeAtP1 = r1.getStartingServiceTimeAt(p1 - 1) + prev1.serviceTime + dataModel.dist(prev1, u2);
-        double newServiceTimeAtP1 = Math.max(newArrivalTimeAtP1, u2.readyTime);
-        if (Utils.greaterThan(newServiceTimeAtP1, u2.dueTime)) return false;
-        double newServiceTimeAtNext1 = Math.max(newServiceTimeAtP1 + u2.serviceTime + dataModel.dist(u2, next1), next1.readyTime);
+        double newArrivalTimeAtP1 = r1.getStartingServiceTimeAt(p1 - 1) + dataModel.getServiceTime(prev1) + dataModel.dist(prev1, u2);
+        double newServiceTimeAtP1 = Math.max(newArrivalTimeAtP1, dataModel.getReadyTime(u2));
+        if (Utils.greaterThan(newServiceTimeAtP1, dataModel.getDueTime(u2))) return false;
+        double newServiceTimeAtNext1 = Math.max(newServiceTimeAtP1 + dataModel.getServiceTime(u2) + dataModel.dist(u2, next1), dataModel.getReadyTime(next1));
         double pushForwardAtNext1 = newServiceTimeAtNext1 - r1.getStartingServiceTimeAt(p1 + 1);
         if (!r1.checkPushForwardTimeFromPosition(pushForwardAtNext1, p1 + 1)) return false;
 
         // Check route r2
-        double newArrivalTimeAtP2 = r2.getStartingServiceTimeAt(p2 - 1) + prev2.serviceTime + dataModel.dist(prev2, u1);
-        double newServiceTimeAtP2 = Math.max(newArrivalTimeAtP2, u1.readyTime);
-        if (Utils.greaterThan(newServiceTimeAtP2, u1.dueTime)) return false;
-        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + u1.serviceTime + dataModel.dist(u1, next2), next2.readyTime);
+        double newArrivalTimeAtP2 = r2.getStartingServiceTimeAt(p2 - 1) + dataModel.getServiceTime(prev2) + dataModel.dist(prev2, u1);
+        double newServiceTimeAtP2 = Math.max(newArrivalTimeAtP2, dataModel.getReadyTime(u1));
+        if (Utils.greaterThan(newServiceTimeAtP2, dataModel.getDueTime(u1))) return false;
+        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + dataModel.getServiceTime(u1) + dataModel.dist(u1, next2), dataModel.getReadyTime(next2));
         double pushForwardAtNext2 = newServiceTimeAtNext2 - r2.getStartingServiceTimeAt(p2 + 1);
         if (!r2.checkPushForwardTimeFromPosition(pushForwardAtNext2, p2 + 1)) return false;
 
@@ -96,19 +96,19 @@ public class Utils {
      * @deprecated
      */
     public static double getCostExchangeOperator(DataModel dataModel, Route r1, int p1, Route r2, int p2, Parameter parameter) {
-        Node u1 = r1.get(p1), prev1 = r1.get(p1 - 1), next1 = r1.get(p1 + 1);
-        Node u2 = r2.get(p2), prev2 = r2.get(p2 - 1), next2 = r2.get(p2 + 1);
+        int u1 = r1.get(p1).id, prev1 = r1.get(p1 - 1).id, next1 = r1.get(p1 + 1).id;
+        int u2 = r2.get(p2).id, prev2 = r2.get(p2 - 1).id, next2 = r2.get(p2 + 1).id;
         double distanceCost = (dataModel.dist(prev1, u2) + dataModel.dist(u2, next1) + dataModel.dist(prev2, u1) + dataModel.dist(u1, next2))
                 - (dataModel.dist(prev1, u1) + dataModel.dist(u1, next1) + dataModel.dist(prev2, u2) + dataModel.dist(u2, next2));
 
-        double newArrivalTimeAtP1 = r1.getStartingServiceTimeAt(p1 - 1) + prev1.serviceTime + dataModel.dist(prev1, u2);
-        double newServiceTimeAtP1 = Math.max(newArrivalTimeAtP1, u2.readyTime);
-        double newServiceTimeAtNext1 = Math.max(newServiceTimeAtP1 + u2.serviceTime + dataModel.dist(u2, next1), next1.readyTime);
+        double newArrivalTimeAtP1 = r1.getStartingServiceTimeAt(p1 - 1) + dataModel.getServiceTime(prev1) + dataModel.dist(prev1, u2);
+        double newServiceTimeAtP1 = Math.max(newArrivalTimeAtP1, dataModel.getReadyTime(u2));
+        double newServiceTimeAtNext1 = Math.max(newServiceTimeAtP1 + dataModel.getServiceTime(u2) + dataModel.dist(u2, next1), dataModel.getReadyTime(next1));
         double pushForwardAtNext1 = newServiceTimeAtNext1 - r1.getStartingServiceTimeAt(p1 + 1);
 
-        double newArrivalTimeAtP2 = r2.getStartingServiceTimeAt(p2 - 1) + prev2.serviceTime + dataModel.dist(prev2, u1);
-        double newServiceTimeAtP2 = Math.max(newArrivalTimeAtP2, u1.readyTime);
-        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + u1.serviceTime + dataModel.dist(u1, next2), next2.readyTime);
+        double newArrivalTimeAtP2 = r2.getStartingServiceTimeAt(p2 - 1) + dataModel.getServiceTime(prev2) + dataModel.dist(prev2, u1);
+        double newServiceTimeAtP2 = Math.max(newArrivalTimeAtP2, dataModel.getReadyTime(u1));
+        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + dataModel.getServiceTime(u1) + dataModel.dist(u1, next2), dataModel.getReadyTime(next2));
         double pushForwardAtNext2 = newServiceTimeAtNext2 - r2.getStartingServiceTimeAt(p2 + 1);
 
         // Total push-forward in time
@@ -128,9 +128,9 @@ public class Utils {
      * time is expensive, thus we approximate it with the push-forward time.
      */
     public static double getPushForwardAfterRelocation(DataModel dataModel, Node u1, Route r2, int p2) {
-        Node next2 = p2 == r2.getLength() ? r2.depot : r2.get(p2), prev2 = r2.get(p2 - 1);
-        double newServiceTimeAtP2 = Math.max(r2.getStartingServiceTimeAt(p2 - 1) + prev2.serviceTime + dataModel.dist(prev2, u1), u1.readyTime);
-        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + u1.serviceTime + dataModel.dist(u1, next2), next2.readyTime);
+        int next2 = p2 == r2.getLength() ? r2.depot.id : r2.get(p2).id, prev2 = r2.get(p2 - 1).id;
+        double newServiceTimeAtP2 = Math.max(r2.getStartingServiceTimeAt(p2 - 1) + dataModel.getServiceTime(prev2) + dataModel.dist(prev2, u1.id), dataModel.getReadyTime(u1.id));
+        double newServiceTimeAtNext2 = Math.max(newServiceTimeAtP2 + dataModel.getServiceTime(u1.id) + dataModel.dist(u1.id, next2), dataModel.getReadyTime(next2));
         double pushForwardAtNext2 = newServiceTimeAtNext2 - (p2 == r2.getLength() ? r2.getLatestArrivalTimeAtDepot() : r2.getStartingServiceTimeAt(p2));  // p2 instead of p2 + 1 because haven't inserted ye
         return pushForwardAtNext2;
     }
@@ -164,6 +164,16 @@ public class Utils {
         return sum;
     }
 
+    /**
+     * Zobrist hash of the set of arcs in the solution: 2 solutions with the same arcs have the same hash,
+     * regardless of the order of the routes and of the assignment of trips to vehicles.
+     */
+    static long getArcHash(List<Route> s) {
+        long hash = 0;
+        for (Route r : s) hash ^= r.getArcHash();
+        return hash;
+    }
+
     // Get the total distance travel in all routes
     static double getTotalDistance(DataModel dataModel, List<Route> s) {
         return s.stream().mapToDouble(r -> getDistanceTravel(dataModel, r)).sum();
@@ -197,6 +207,7 @@ public class Utils {
             Node customer = route.routedPath.get(i);
             route.arrivalTimes.set(i, route.getStartingServiceTimeAt(i - 1) + prevCustomer.serviceTime + dataModel.dist(prevCustomer, customer));
         }
+        route.markModified();
         assert isValidRoute(dataModel, route);
     }
 
@@ -204,6 +215,8 @@ public class Utils {
         if (route.routedPath.get(0) != route.depot || route.routedPath.get(route.routedPath.size() - 1) != route.depot) {
             return false;
         }
+        // The incrementally maintained hash must match the path
+        if (route.getArcHash() != route.computeArcHash()) return false;
 
         // Check capacity and time constraint
         int curVehicleLoad = 0;
@@ -234,16 +247,18 @@ public class Utils {
         int n = routedPath.size();
         int load = 0, capacity = dataModel.getVehicleCapacity();
         double time = 0;
+        int cur = routedPath.get(0).id;
         for (int i = 0; i < n - 1; i++) {
             // time is arrival time at customer i(th) in the route
-            Node cur = routedPath.get(i), next = routedPath.get(i + 1);
-            if (cur == dataModel.getDepot()) load = 0;
-            else load += cur.demand;
-            if (load > capacity || time > cur.dueTime) return false;
-            time = Math.max(time, cur.readyTime);  // wait if arrives early
-            time += cur.serviceTime + dataModel.dist(cur, next);
+            int next = routedPath.get(i + 1).id;
+            if (cur == 0) load = 0;  // depot
+            else load += dataModel.getDemand(cur);
+            if (load > capacity || time > dataModel.getDueTime(cur)) return false;
+            time = Math.max(time, dataModel.getReadyTime(cur));  // wait if arrives early
+            time += dataModel.getServiceTime(cur) + dataModel.dist(cur, next);
+            cur = next;
         }
-        if (time > routedPath.get(n - 1).dueTime) return false;  // can return to last node (depot) on time
+        if (time > dataModel.getDueTime(cur)) return false;  // can return to last node (depot) on time
         return true;
     }
 
@@ -496,5 +511,7 @@ class Node {
 enum TEST_CONFIG {
     TEST_LS,
     TEST_ALL,
-    TEST_ILS;
+    TEST_ILS,
+    TEST_ISLAND_MODEL,
+    TEST_INSERTION_COST;
 }